@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import de.schnippsche.solarreader.backend.util.Setting;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test data and database settings shared by the benchmarks.
+ *
+ * <p>The benchmarks that need a database connect to a local MySQL or MariaDB server. The connection
+ * is configured with the system properties {@code benchmark.host}, {@code benchmark.port}, {@code
+ * benchmark.user}, {@code benchmark.password} and {@code benchmark.dbname}; the database must
+ * exist, the benchmark tables are created automatically.
+ */
+final class BenchmarkData {
+  private BenchmarkData() {}
+
+  /**
+   * Creates the schema of a benchmark table: a timestamp, a device name and {@code columns - 2}
+   * measured values.
+   *
+   * @param tableName the table name
+   * @param columns the total number of columns, at least 3
+   * @return the {@link TableSchema}
+   */
+  static TableSchema schema(String tableName, int columns) {
+    List<String> names = new ArrayList<>(columns);
+    names.add("ts");
+    names.add("device");
+    for (int i = 2; i < columns; i++) {
+      names.add("value" + i);
+    }
+    return new TableSchema(tableName, names);
+  }
+
+  /**
+   * Creates a batch with the given number of rows.
+   *
+   * @param schema the {@link TableSchema} created by {@link #schema(String, int)}
+   * @param rows the number of rows
+   * @return the {@link TableBatch}
+   */
+  static TableBatch batch(TableSchema schema, int rows) {
+    TableBatch batch = new TableBatch(schema);
+    LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+    for (int row = 0; row < rows; row++) {
+      Object[] values = new Object[schema.getColumnCount()];
+      values[0] = start.plusSeconds(row);
+      values[1] = "inverter" + (row % 4);
+      for (int i = 2; i < values.length; i++) {
+        values[i] = row * 0.5 + i;
+      }
+      batch.addRow(values);
+    }
+    return batch;
+  }
+
+  /**
+   * Creates the connection settings of the benchmark database.
+   *
+   * @param writeMode the {@link WriteMode} to configure
+   * @return the {@link Setting}
+   */
+  static Setting setting(WriteMode writeMode) {
+    Setting setting = new Setting();
+    setting.setProviderHost(System.getProperty("benchmark.host", "localhost"));
+    setting.setProviderPort(Integer.getInteger("benchmark.port", 3306));
+    setting.setOptionalUser(System.getProperty("benchmark.user", "root"));
+    setting.setOptionalPassword(System.getProperty("benchmark.password", "root"));
+    setting.setConfigurationValue("dbname", System.getProperty("benchmark.dbname", "benchmark"));
+    setting.setConfigurationValue(SimpleMySQLConnection.WRITE_MODE, writeMode.name());
+    setting.setConfigurationValue(SimpleMySQLConnection.AUTO_CREATE, "true");
+    return setting;
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the binding of the row values to a server-side prepared statement of the MariaDB
+ * driver, with {@code setObject} on boxed row arrays against the typed binding from the columnar
+ * {@link TableBatch}.
+ *
+ * <p>The statement is prepared once against the benchmark database, see {@link BenchmarkData}. The
+ * benchmark only binds and batches the rows; nothing is executed, so the result is the CPU cost on
+ * the client.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindingBenchmark {
+  @Param({"4", "16", "64"})
+  private int columns;
+
+  @Param({"10", "1000"})
+  private int rows;
+
+  private Connection connection;
+  private PreparedStatement statement;
+  private TableBatch batch;
+  private List<Object[]> values;
+
+  /**
+   * Creates the table and prepares the statement.
+   *
+   * @throws SQLException if the database is not available
+   */
+  @Setup(Level.Trial)
+  public void setup() throws SQLException {
+    TableSchema schema = BenchmarkData.schema("bench_binding_" + columns, columns);
+    batch = BenchmarkData.batch(schema, rows);
+    values = new ArrayList<>(rows);
+    for (int row = 0; row < rows; row++) {
+      Object[] rowValues = new Object[columns];
+      for (int column = 0; column < columns; column++) {
+        rowValues[column] = batch.getValue(row, column);
+      }
+      values.add(rowValues);
+    }
+    InsertStatement insert = InsertStatement.of(schema);
+    try (SimpleMySQLConnection writer =
+        new SimpleMySQLConnection(BenchmarkData.setting(WriteMode.BATCH))) {
+      // creates the table
+      writer.writeBatches(List.of(BenchmarkData.batch(schema, 1)));
+    } catch (IOException e) {
+      throw new SQLException(e.getMessage(), e);
+    }
+    String url =
+        String.format(
+            "jdbc:mariadb://%s:%s/%s?useServerPrepStmts=true",
+            System.getProperty("benchmark.host", "localhost"),
+            Integer.getInteger("benchmark.port", 3306),
+            System.getProperty("benchmark.dbname", "benchmark"));
+    connection =
+        DriverManager.getConnection(
+            url,
+            System.getProperty("benchmark.user", "root"),
+            System.getProperty("benchmark.password", "root"));
+    statement = connection.prepareStatement(insert.getSql());
+  }
+
+  /**
+   * Closes the statement and the connection.
+   *
+   * @throws SQLException if closing fails
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+    statement.close();
+    connection.close();
+  }
+
+  /**
+   * Binds every value with {@code setObject}.
+   *
+   * @throws SQLException if a value cannot be bound
+   */
+  @Benchmark
+  public void setObject() throws SQLException {
+    for (Object[] row : values) {
+      for (int i = 0; i < row.length; i++) {
+        statement.setObject(i + 1, row[i]);
+      }
+      statement.addBatch();
+    }
+    statement.clearBatch();
+  }
+
+  /**
+   * Binds every value from the column buffers with the typed setter of its column.
+   *
+   * @throws SQLException if a value cannot be bound
+   */
+  @Benchmark
+  public void typed() throws SQLException {
+    for (int row = 0; row < batch.getRowCount(); row++) {
+      batch.bindRow(statement, row, 1);
+      statement.addBatch();
+    }
+    statement.clearBatch();
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the creation of the {@code INSERT} statement: the former per-call generation with
+ * streams and {@code String.format} against the lookup in the {@link InsertStatementCache}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InsertStatementBenchmark {
+  @Param({"4", "16", "64"})
+  private int columns;
+
+  @Param({"1", "100"})
+  private int rows;
+
+  private TableSchema schema;
+  private InsertStatementCache cache;
+
+  /** Creates the schema and fills the cache. */
+  @Setup
+  public void setup() {
+    schema = BenchmarkData.schema("bench_insert", columns);
+    cache = new InsertStatementCache();
+    cache.get(schema);
+  }
+
+  /**
+   * Builds the statement on every call, as {@code generateInsertStatement} did before the cache.
+   *
+   * @return the SQL
+   */
+  @Benchmark
+  public String generate() {
+    String columnNames = String.join(", ", schema.getColumnNames());
+    String placeholders =
+        schema.getColumnNames().stream()
+            .map(column -> "?")
+            .collect(Collectors.joining(", ", "(", ")"));
+    String values = String.join(", ", Collections.nCopies(rows, placeholders));
+    return String.format(
+        "INSERT INTO %s (%s) VALUES %s", schema.getTableName(), columnNames, values);
+  }
+
+  /**
+   * Takes the statement from the cache.
+   *
+   * @return the SQL
+   */
+  @Benchmark
+  public String cached() {
+    return cache.get(schema).getSql(rows);
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import de.schnippsche.solarreader.backend.util.Setting;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a complete export transaction with {@link SimpleMySQLConnection#writeBatches(List)}
+ * against the benchmark database, see {@link BenchmarkData}: borrowing the pooled connection,
+ * binding, executing and committing.
+ *
+ * <p>Each invocation writes {@code tables} tables with {@code rows} rows each, like one combined
+ * round of the export consumer.
+ *
+ * <p>{@code LOAD DATA} is switched off by default, so all row counts go through the configured
+ * {@link WriteMode}; run with {@code -p loadDataThreshold=1000} to include the bulk load path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteBenchmark {
+  @Param({"8", "32"})
+  private int columns;
+
+  @Param({"1", "100", "1000"})
+  private int rows;
+
+  @Param({"1", "4"})
+  private int tables;
+
+  @Param({"BATCH", "MULTIROW"})
+  private WriteMode writeMode;
+
+  @Param({"0"})
+  private int loadDataThreshold;
+
+  private SimpleMySQLConnection connection;
+  private List<TableBatch> batches;
+
+  /**
+   * Opens the connection, creates the tables and prepares the data.
+   *
+   * @throws IOException if the database is not available
+   */
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    Setting setting = BenchmarkData.setting(writeMode);
+    setting.setConfigurationValue(
+        SimpleMySQLConnection.LOAD_DATA_THRESHOLD, String.valueOf(loadDataThreshold));
+    connection = new SimpleMySQLConnection(setting);
+    batches = new ArrayList<>(tables);
+    for (int i = 0; i < tables; i++) {
+      TableSchema schema = BenchmarkData.schema("bench_write_" + columns + "_" + i, columns);
+      batches.add(BenchmarkData.batch(schema, rows));
+    }
+    connection.writeBatches(batches);
+  }
+
+  /** Closes the pooled connections. */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    connection.close();
+  }
+
+  /**
+   * Writes all tables in one transaction.
+   *
+   * @throws IOException if the write fails
+   */
+  @Benchmark
+  public void writeBatches() throws IOException {
+    connection.writeBatches(batches);
+  }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.tinylog.Logger;
+
+/**
+ * Downsamples the exported rows into time buckets for companion aggregate tables.
+ *
+ * <p>For every table, bucket size and row position the aggregator keeps streaming accumulators of
+ * the numeric columns: minimum, maximum, sum, last value and the number of values. When a sample
+ * falls into a new bucket, the finished bucket is returned as one row per position for the table
+ * {@code <table>_<bucket>}, e.g. {@code inverter_15m}, with the columns {@code bucket_start},
+ * {@code position}, {@code samples} and {@code <column>_min}, {@code <column>_max}, {@code
+ * <column>_avg}, {@code <column>_last} for every numeric column. The rows are part of the same
+ * export as the raw rows, but are written in a separate transaction, see {@link
+ * #isAggregate(TableSchema)}.
+ *
+ * <p>A sample older than the running bucket is ignored for that bucket size, because its bucket has
+ * already been written. A column is aggregated from the first batch in which it has numeric
+ * values, so a column that is still empty or not numeric at first joins later; the schema catalog
+ * then adds its columns to the aggregate table. A bucket that is not finished when the exporter
+ * stops is not written.
+ */
+final class BucketAggregator {
+  private static final String[] SUFFIXES = {"_min", "_max", "_avg", "_last"};
+  private static final List<String> KEY_COLUMNS = List.of("bucket_start", "position", "samples");
+  private final List<Bucket> buckets;
+  private final Map<TableSchema, TableAggregates> tables = new HashMap<>();
+
+  private BucketAggregator(List<Bucket> buckets) {
+    this.buckets = buckets;
+  }
+
+  /**
+   * Creates an aggregator from the configuration value.
+   *
+   * @param value the bucket sizes, e.g. {@code 1m, 15m}; a number without unit is read as seconds,
+   *     the units {@code s}, {@code m}, {@code h} and {@code d} are supported
+   * @return the aggregator, or {@code null} if no valid bucket size is configured
+   */
+  static BucketAggregator of(String value) {
+    if (value == null) {
+      return null;
+    }
+    List<Bucket> buckets = new ArrayList<>();
+    for (String entry : value.split(",")) {
+      Bucket bucket = Bucket.parse(entry.trim().toLowerCase(Locale.ROOT));
+      if (bucket != null) {
+        buckets.add(bucket);
+      }
+    }
+    return buckets.isEmpty() ? null : new BucketAggregator(buckets);
+  }
+
+  /**
+   * Checks whether a schema belongs to an aggregate table created by this class, so the exporter
+   * can write aggregate rows separately from the raw rows.
+   *
+   * @param schema the {@link TableSchema} to check
+   * @return {@code true} if the schema starts with the columns of an aggregate table
+   */
+  static boolean isAggregate(TableSchema schema) {
+    List<String> names = schema.getColumnNames();
+    return names.size() > KEY_COLUMNS.size()
+        && names.subList(0, KEY_COLUMNS.size()).equals(KEY_COLUMNS);
+  }
+
+  /**
+   * Adds the rows of a batch to the buckets of the given time.
+   *
+   * @param batch the {@link TableBatch} with the raw rows
+   * @param timeMillis the time of the rows in milliseconds since the epoch
+   * @return the rows of the buckets finished by this sample, may be empty
+   */
+  synchronized List<TableBatch> add(TableBatch batch, long timeMillis) {
+    TableAggregates table = tables.get(batch.getSchema());
+    if (table == null) {
+      table = new TableAggregates(batch.getSchema(), buckets);
+      tables.put(batch.getSchema(), table);
+    }
+    table.widen(batch.getParameterTypes());
+    List<TableBatch> finished = new ArrayList<>(0);
+    if (table.numericColumns.length == 0) {
+      return finished;
+    }
+    for (BucketState state : table.states) {
+      long bucketStart = Math.floorDiv(timeMillis, state.millis) * state.millis;
+      if (bucketStart < state.start) {
+        Logger.debug(
+            "late sample of '{}' for finished bucket {}, ignore it",
+            batch.getSchema().getTableName(),
+            new Timestamp(bucketStart));
+        continue;
+      }
+      if (state.start != bucketStart) {
+        if (!state.positions.isEmpty()) {
+          finished.add(state.finish(table));
+        }
+        state.start = bucketStart;
+      }
+      for (int row = 0; row < batch.getRowCount(); row++) {
+        if (state.positions.size() <= row) {
+          state.positions.add(new Accumulator(table.schema.getColumnNames().size()));
+        }
+        state.positions.get(row).add(batch, row, table.numericColumns);
+      }
+    }
+    return finished;
+  }
+
+  /** A configured bucket size. */
+  private static final class Bucket {
+    private final String label;
+    private final long millis;
+
+    private Bucket(String label, long millis) {
+      this.label = label;
+      this.millis = millis;
+    }
+
+    private static Bucket parse(String value) {
+      if (value.isEmpty()) {
+        return null;
+      }
+      char unit = value.charAt(value.length() - 1);
+      TimeUnit timeUnit;
+      switch (unit) {
+        case 'd':
+          timeUnit = TimeUnit.DAYS;
+          break;
+        case 'h':
+          timeUnit = TimeUnit.HOURS;
+          break;
+        case 'm':
+          timeUnit = TimeUnit.MINUTES;
+          break;
+        case 's':
+          timeUnit = TimeUnit.SECONDS;
+          break;
+        default:
+          timeUnit = null;
+      }
+      String number = timeUnit == null ? value : value.substring(0, value.length() - 1);
+      try {
+        long amount = Long.parseLong(number.trim());
+        if (amount > 0) {
+          return timeUnit == null
+              ? new Bucket(amount + "s", TimeUnit.SECONDS.toMillis(amount))
+              : new Bucket(amount + String.valueOf(unit), timeUnit.toMillis(amount));
+        }
+      } catch (NumberFormatException e) {
+        // reported below
+      }
+      Logger.warn("invalid aggregate bucket '{}', ignore it", value);
+      return null;
+    }
+  }
+
+  /** The buckets of one raw table. */
+  private static final class TableAggregates {
+    private final TableSchema schema;
+    private final boolean[] numeric;
+    private final BucketState[] states;
+    private int[] numericColumns = new int[0];
+
+    private TableAggregates(TableSchema schema, List<Bucket> buckets) {
+      this.schema = schema;
+      this.numeric = new boolean[schema.getColumnNames().size()];
+      this.states = new BucketState[buckets.size()];
+      for (int i = 0; i < states.length; i++) {
+        Bucket bucket = buckets.get(i);
+        states[i] = new BucketState(schema.getTableName() + "_" + bucket.label, bucket.millis);
+      }
+    }
+
+    /**
+     * Adds the columns that have numeric values in a batch. A column stays aggregated once it had
+     * numeric values, so the aggregate tables only ever gain columns.
+     */
+    private void widen(ParameterType[] types) {
+      boolean changed = false;
+      for (int i = 0; i < types.length; i++) {
+        if (!numeric[i] && types[i] != null && types[i].isNumeric()) {
+          numeric[i] = true;
+          changed = true;
+        }
+      }
+      if (changed) {
+        int[] columns = new int[numeric.length];
+        int count = 0;
+        for (int i = 0; i < numeric.length; i++) {
+          if (numeric[i]) {
+            columns[count++] = i;
+          }
+        }
+        numericColumns = Arrays.copyOf(columns, count);
+      }
+    }
+
+    private TableSchema aggregateSchema(String tableName) {
+      List<String> columnNames = new ArrayList<>(3 + SUFFIXES.length * numericColumns.length);
+      columnNames.addAll(KEY_COLUMNS);
+      for (int column : numericColumns) {
+        for (String suffix : SUFFIXES) {
+          columnNames.add(schema.getColumnNames().get(column) + suffix);
+        }
+      }
+      return TableSchema.intern(tableName, columnNames);
+    }
+  }
+
+  /** The running bucket of one raw table and bucket size. */
+  private static final class BucketState {
+    private final String tableName;
+    private final long millis;
+    private final List<Accumulator> positions = new ArrayList<>();
+    private long start = Long.MIN_VALUE;
+
+    private BucketState(String tableName, long millis) {
+      this.tableName = tableName;
+      this.millis = millis;
+    }
+
+    private TableBatch finish(TableAggregates table) {
+      TableBatch batch = new TableBatch(table.aggregateSchema(tableName));
+      Timestamp bucketStart = new Timestamp(start);
+      for (int position = 0; position < positions.size(); position++) {
+        batch.addRow(positions.get(position).toRow(bucketStart, position, table.numericColumns));
+      }
+      positions.clear();
+      return batch;
+    }
+  }
+
+  /** The accumulators of the columns at one row position, indexed by the raw column. */
+  private static final class Accumulator {
+    private final long[] counts;
+    private final double[] min;
+    private final double[] max;
+    private final double[] sum;
+    private final double[] last;
+    private long samples;
+
+    private Accumulator(int columnCount) {
+      this.counts = new long[columnCount];
+      this.min = new double[columnCount];
+      this.max = new double[columnCount];
+      this.sum = new double[columnCount];
+      this.last = new double[columnCount];
+    }
+
+    private void add(TableBatch batch, int row, int[] columns) {
+      samples++;
+      for (int i : columns) {
+        double value = batch.getDouble(row, i);
+        if (Double.isNaN(value)) {
+          continue;
+        }
+        if (counts[i] == 0 || value < min[i]) {
+          min[i] = value;
+        }
+        if (counts[i] == 0 || value > max[i]) {
+          max[i] = value;
+        }
+        sum[i] += value;
+        last[i] = value;
+        counts[i]++;
+      }
+    }
+
+    private Object[] toRow(Timestamp bucketStart, int position, int[] columns) {
+      Object[] row = new Object[3 + SUFFIXES.length * columns.length];
+      row[0] = bucketStart;
+      row[1] = (long) position;
+      row[2] = samples;
+      for (int j = 0; j < columns.length; j++) {
+        int i = columns[j];
+        if (counts[i] > 0) {
+          int offset = 3 + SUFFIXES.length * j;
+          row[offset] = min[i];
+          row[offset + 1] = max[i];
+          row[offset + 2] = sum[i] / counts[i];
+          row[offset + 3] = last[i];
+        }
+      }
+      return row;
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A circuit breaker guarding the database writes of the exporter.
+ *
+ * <p>Every failed attempt delays the next one with an exponential backoff: the delay doubles with
+ * each consecutive failure up to a maximum, and a random jitter of up to half the delay spreads the
+ * attempts of several exporters. After {@code failureThreshold} consecutive failures the breaker
+ * opens. While it is open, the next attempt must be a single cheap probe instead of a real write;
+ * only when the probe succeeds is the breaker closed again.
+ */
+final class CircuitBreaker {
+  private final int failureThreshold;
+  private final long baseDelayMillis;
+  private final long maxDelayMillis;
+  private int failures;
+  private long nextAttempt;
+
+  /**
+   * Constructs a new {@code CircuitBreaker}.
+   *
+   * @param failureThreshold the number of consecutive failures that open the breaker
+   * @param baseDelayMillis the delay after the first failure
+   * @param maxDelayMillis the upper limit of the delay
+   */
+  CircuitBreaker(int failureThreshold, long baseDelayMillis, long maxDelayMillis) {
+    this.failureThreshold = Math.max(1, failureThreshold);
+    this.baseDelayMillis = Math.max(1, baseDelayMillis);
+    this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+  }
+
+  /**
+   * Returns the time to wait before the next attempt.
+   *
+   * @return the remaining delay in milliseconds, {@code 0} if an attempt is allowed now
+   */
+  synchronized long getDelayMillis() {
+    return Math.max(0, nextAttempt - System.currentTimeMillis());
+  }
+
+  /**
+   * Checks whether the breaker is open, i.e. whether the next attempt must be a probe.
+   *
+   * @return {@code true} if the breaker is open
+   */
+  synchronized boolean isOpen() {
+    return failures >= failureThreshold;
+  }
+
+  /**
+   * Returns the number of consecutive failures.
+   *
+   * @return the failure count
+   */
+  synchronized int getFailures() {
+    return failures;
+  }
+
+  /** Records a successful attempt and closes the breaker. */
+  synchronized void recordSuccess() {
+    failures = 0;
+    nextAttempt = 0;
+  }
+
+  /**
+   * Records a failed attempt and schedules the next one.
+   *
+   * @return the delay until the next attempt in milliseconds
+   */
+  synchronized long recordFailure() {
+    failures++;
+    int shift = Math.min(failures - 1, 30);
+    long delay = Math.min(maxDelayMillis, baseDelayMillis << shift);
+    delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    nextAttempt = System.currentTimeMillis() + delay;
+    return delay;
+  }
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+/**
+ * The values of one column of a {@link TableBatch}.
+ *
+ * <p>The storage depends on the {@link ParameterType} of the column, which is taken from the first
+ * non-null value: floating point values are kept in a {@code double[]}, integral values in a {@code
+ * long[]} and all other values in an {@code Object[]}. Null values are marked in a bitmap. If a
+ * value does not fit the type of the column, the column is widened with {@link
+ * ParameterType#widen(ParameterType, ParameterType)}: mixed numbers are converted to a {@code
+ * double[]} column, any other mix to an object column of type {@link ParameterType#OBJECT}.
+ *
+ * <p>Primitive columns need 8 bytes per value instead of a reference and a boxed object, and they
+ * are bound with {@link PreparedStatement#setDouble(int, double)} or {@link
+ * PreparedStatement#setLong(int, long)} without boxing.
+ */
+final class ColumnBuffer {
+  private static final int INITIAL_CAPACITY = 8;
+  private ParameterType type;
+  private double[] doubles;
+  private long[] longs;
+  private Object[] objects;
+  private long[] nulls = new long[1];
+  private int size;
+
+  /**
+   * Returns the type of the column.
+   *
+   * @return the {@link ParameterType}, or {@code null} if only null values were added
+   */
+  ParameterType getType() {
+    return type;
+  }
+
+  /**
+   * Returns the number of values.
+   *
+   * @return the size
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Appends a value.
+   *
+   * @param value the value, may be {@code null}
+   */
+  void add(Object value) {
+    if (value == null) {
+      ensureCapacity(size + 1);
+      setNull(size);
+    } else {
+      if (type == null) {
+        initialize(ParameterType.of(value));
+      } else if (!type.accepts(value)) {
+        widen(ParameterType.widen(type, ParameterType.of(value)));
+      }
+      ensureCapacity(size + 1);
+      if (doubles != null) {
+        doubles[size] = ((Number) value).doubleValue();
+      } else if (longs != null) {
+        longs[size] = ((Number) value).longValue();
+      } else {
+        objects[size] = value;
+      }
+    }
+    size++;
+  }
+
+  /**
+   * Appends all values of another column.
+   *
+   * @param other the column to append
+   */
+  void addAll(ColumnBuffer other) {
+    if (other.size == 0) {
+      return;
+    }
+    if (type == null && other.type != null) {
+      initialize(other.type);
+    } else if (other.type != null && type != other.type) {
+      widen(ParameterType.widen(type, other.type));
+    }
+    ensureCapacity(size + other.size);
+    for (int i = 0; i < other.size; i++) {
+      if (other.isNull(i)) {
+        setNull(size + i);
+      } else if (doubles != null) {
+        doubles[size + i] = other.getDouble(i);
+      } else if (longs != null && other.longs != null) {
+        longs[size + i] = other.longs[i];
+      } else {
+        objects[size + i] = other.get(i);
+      }
+    }
+    size += other.size;
+  }
+
+  /**
+   * Checks whether a value is null.
+   *
+   * @param row the row index
+   * @return {@code true} if the value is null
+   */
+  boolean isNull(int row) {
+    return (nulls[row >>> 6] & (1L << row)) != 0;
+  }
+
+  /**
+   * Returns a value as object. Primitive values are boxed, so this method is meant for paths that
+   * are not performance-critical, such as the spool encoding.
+   *
+   * @param row the row index
+   * @return the value, may be {@code null}
+   */
+  Object get(int row) {
+    if (isNull(row)) {
+      return null;
+    }
+    if (doubles != null) {
+      return doubles[row];
+    }
+    if (longs != null) {
+      return longs[row];
+    }
+    return objects[row];
+  }
+
+  /**
+   * Returns a value as {@code double} without boxing.
+   *
+   * @param row the row index
+   * @return the numeric value, or {@link Double#NaN} if the value is null or not a number
+   */
+  double getDouble(int row) {
+    if (isNull(row)) {
+      return Double.NaN;
+    }
+    if (doubles != null) {
+      return doubles[row];
+    }
+    if (longs != null) {
+      return longs[row];
+    }
+    return objects[row] instanceof Number ? ((Number) objects[row]).doubleValue() : Double.NaN;
+  }
+
+  /**
+   * Binds a value to a statement parameter.
+   *
+   * @param statement the {@link PreparedStatement}
+   * @param index the parameter index, starting with 1
+   * @param row the row index
+   * @throws SQLException if the value cannot be bound
+   */
+  void bind(PreparedStatement statement, int index, int row) throws SQLException {
+    if (isNull(row)) {
+      (type == null ? ParameterType.OBJECT : type).bind(statement, index, null);
+    } else if (doubles != null) {
+      statement.setDouble(index, doubles[row]);
+    } else if (longs != null) {
+      statement.setLong(index, longs[row]);
+    } else {
+      type.bind(statement, index, objects[row]);
+    }
+  }
+
+  /**
+   * Appends a value in the text format of {@code LOAD DATA}: {@code \N} for null, numbers in
+   * their decimal form, booleans as {@code 1} or {@code 0}, date and time values as {@code
+   * yyyy-MM-dd HH:mm:ss.fff} in the default time zone like {@link ParameterType#TIMESTAMP}, also
+   * in a column of mixed types, and text with
+   * backslash escapes for tab, newline, carriage return, NUL and backslash.
+   *
+   * @param out the {@link StringBuilder} to append to
+   * @param row the row index
+   */
+  void appendText(StringBuilder out, int row) {
+    if (isNull(row)) {
+      out.append("\\N");
+    } else if (doubles != null) {
+      double value = doubles[row];
+      if (Double.isNaN(value) || Double.isInfinite(value)) {
+        out.append("\\N");
+      } else {
+        out.append(value);
+      }
+    } else if (longs != null) {
+      out.append(longs[row]);
+    } else {
+      Object value = objects[row];
+      if (value instanceof Number) {
+        out.append(
+            value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString());
+      } else if (value instanceof Boolean) {
+        out.append((Boolean) value ? '1' : '0');
+      } else {
+        Timestamp timestamp = ParameterType.toTimestamp(value);
+        if (timestamp != null) {
+          out.append(timestamp);
+        } else {
+          appendEscaped(out, value.toString());
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks whether a value is text.
+   *
+   * @param row the row index
+   * @return {@code true} if the value is a {@link CharSequence}
+   */
+  boolean isText(int row) {
+    return objects != null && objects[row] instanceof CharSequence;
+  }
+
+  /**
+   * Estimates the heap memory of this column.
+   *
+   * @return the estimated size in bytes
+   */
+  long estimateSize() {
+    long size = 48L + 8L * nulls.length;
+    if (doubles != null) {
+      return size + 8L * doubles.length;
+    }
+    if (longs != null) {
+      return size + 8L * longs.length;
+    }
+    if (objects != null) {
+      size += 4L * objects.length;
+      for (int i = 0; i < this.size; i++) {
+        Object value = objects[i];
+        size += value instanceof CharSequence ? 40 + 2L * ((CharSequence) value).length() : 24;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Estimates the size of the values as they are sent to the database: 8 bytes per number or
+   * timestamp and one byte per character.
+   *
+   * @return the estimated size in bytes
+   */
+  long estimatePayloadSize() {
+    if (objects == null) {
+      return 8L * (size - countNulls());
+    }
+    long payload = 0;
+    for (int i = 0; i < size; i++) {
+      Object value = objects[i];
+      if (value instanceof CharSequence) {
+        payload += ((CharSequence) value).length();
+      } else if (value != null) {
+        payload += 8;
+      }
+    }
+    return payload;
+  }
+
+  private static void appendEscaped(StringBuilder out, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '\\':
+          out.append("\\\\");
+          break;
+        case '\t':
+          out.append("\\t");
+          break;
+        case '\n':
+          out.append("\\n");
+          break;
+        case '\r':
+          out.append("\\r");
+          break;
+        case '\0':
+          out.append("\\0");
+          break;
+        default:
+          out.append(c);
+      }
+    }
+  }
+
+  private int countNulls() {
+    int count = 0;
+    for (long word : nulls) {
+      count += Long.bitCount(word);
+    }
+    return count;
+  }
+
+  private void initialize(ParameterType newType) {
+    type = newType;
+    int capacity = Math.max(INITIAL_CAPACITY, size);
+    if (newType == ParameterType.DOUBLE) {
+      doubles = new double[capacity];
+    } else if (newType == ParameterType.LONG) {
+      longs = new long[capacity];
+    } else {
+      objects = new Object[capacity];
+    }
+  }
+
+  private void widen(ParameterType newType) {
+    if (newType == ParameterType.DOUBLE) {
+      toDoubles();
+    } else {
+      toObjects(newType);
+    }
+  }
+
+  private void toDoubles() {
+    if (doubles == null) {
+      double[] converted = new double[Math.max(INITIAL_CAPACITY, size)];
+      for (int i = 0; i < size; i++) {
+        converted[i] = isNull(i) ? 0 : getDouble(i);
+      }
+      doubles = converted;
+      longs = null;
+      objects = null;
+    }
+    type = ParameterType.DOUBLE;
+  }
+
+  private void toObjects(ParameterType newType) {
+    if (objects == null) {
+      Object[] converted = new Object[Math.max(INITIAL_CAPACITY, size)];
+      for (int i = 0; i < size; i++) {
+        converted[i] = get(i);
+      }
+      objects = converted;
+      doubles = null;
+      longs = null;
+    }
+    type = newType;
+  }
+
+  private void setNull(int row) {
+    nulls[row >>> 6] |= 1L << row;
+  }
+
+  private void ensureCapacity(int capacity) {
+    int words = (capacity + 63) >>> 6;
+    if (words > nulls.length) {
+      nulls = Arrays.copyOf(nulls, Math.max(words, nulls.length * 2));
+    }
+    if (doubles != null && capacity > doubles.length) {
+      doubles = Arrays.copyOf(doubles, newCapacity(doubles.length, capacity));
+    } else if (longs != null && capacity > longs.length) {
+      longs = Arrays.copyOf(longs, newCapacity(longs.length, capacity));
+    } else if (objects != null && capacity > objects.length) {
+      objects = Arrays.copyOf(objects, newCapacity(objects.length, capacity));
+    }
+  }
+
+  private static int newCapacity(int current, int required) {
+    return Math.max(required, current + (current >> 1));
+  }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.tinylog.Logger;
+
+/**
+ * Skips rows whose values have not changed since they were last exported.
+ *
+ * <p>For every table and row position the filter remembers the values of the last exported row: a
+ * {@code double} per numeric column and the value itself for other columns. A new row is exported
+ * if a numeric value differs from the remembered one by more than the deadband of its column, if
+ * any other value differs, or if the last export of this row position is older than the heartbeat.
+ * Date and time values are not compared, because they change with every reading.
+ *
+ * <p>The deadband of a column is either absolute, e.g. {@code 0.5}, or relative to the remembered
+ * value, e.g. {@code 1%}. Columns with the deadband {@code ignore} are not compared at all. Whole
+ * rows are skipped, because a row with only some of its columns would store {@code NULL} for the
+ * unchanged values.
+ *
+ * <p>The values are remembered when a row passes the filter. If the export containing the row is
+ * not written, e.g. because it was dropped, {@link #rollback(Undo)} restores the values remembered
+ * before, so the next reading of the row is not skipped as unchanged.
+ */
+final class DeadbandFilter {
+  private static final String IGNORE = "ignore";
+  private static final Threshold EXACT = new Threshold(0, 0, false);
+  private static final Threshold IGNORED = new Threshold(0, 0, true);
+  private final Threshold defaultThreshold;
+  private final Map<String, Threshold> columnThresholds;
+  private final long heartbeatNanos;
+  private final Map<TableSchema, TableState> tables = new HashMap<>();
+
+  private DeadbandFilter(
+      Threshold defaultThreshold, Map<String, Threshold> columnThresholds, long heartbeatNanos) {
+    this.defaultThreshold = defaultThreshold;
+    this.columnThresholds = columnThresholds;
+    this.heartbeatNanos = heartbeatNanos;
+  }
+
+  /**
+   * Creates a filter from the configuration values.
+   *
+   * @param deadband the default deadband of all columns, e.g. {@code 0.5} or {@code 1%}; {@code
+   *     null} to skip only unchanged values
+   * @param columns the deadbands of single columns, e.g. {@code power=10, voltage=1%, id=ignore},
+   *     may be {@code null}
+   * @param heartbeatNanos the maximum time between two exports of a row position in nanoseconds
+   * @return the filter
+   */
+  static DeadbandFilter of(String deadband, String columns, long heartbeatNanos) {
+    Map<String, Threshold> columnThresholds = new HashMap<>();
+    if (columns != null) {
+      for (String entry : columns.split(",")) {
+        int separator = entry.indexOf('=');
+        if (separator <= 0) {
+          if (!entry.isBlank()) {
+            Logger.warn("invalid column deadband '{}', ignore it", entry.trim());
+          }
+          continue;
+        }
+        columnThresholds.put(
+            entry.substring(0, separator).trim().toLowerCase(Locale.ROOT),
+            Threshold.parse(entry.substring(separator + 1)));
+      }
+    }
+    return new DeadbandFilter(
+        deadband == null ? EXACT : Threshold.parse(deadband), columnThresholds, heartbeatNanos);
+  }
+
+  /**
+   * Removes the unchanged rows from a batch and remembers the values of the remaining rows.
+   *
+   * @param batch the {@link TableBatch} to filter
+   * @param nowNanos the current {@link System#nanoTime()}
+   * @param undo collects the replaced values for {@link #rollback(Undo)}
+   * @return the batch itself if all rows changed, a new batch with the changed rows, or {@code
+   *     null} if no row changed
+   */
+  synchronized TableBatch apply(TableBatch batch, long nowNanos, Undo undo) {
+    TableState table = tables.computeIfAbsent(batch.getSchema(), this::newTableState);
+    int rowCount = batch.getRowCount();
+    table.ensureRows(rowCount);
+    boolean[] changed = new boolean[rowCount];
+    int changedCount = 0;
+    for (int row = 0; row < rowCount; row++) {
+      RowState last = table.rows[row];
+      if (last == null
+          || nowNanos - last.exportedNanos >= heartbeatNanos
+          || hasChanged(batch, row, last, table.thresholds)) {
+        table.rows[row] = remember(batch, row, nowNanos);
+        undo.add(table, row, last, table.rows[row]);
+        changed[row] = true;
+        changedCount++;
+      }
+    }
+    if (changedCount == rowCount) {
+      return batch;
+    }
+    if (changedCount == 0) {
+      return null;
+    }
+    TableBatch result = new TableBatch(batch.getSchema());
+    for (int row = 0; row < rowCount; row++) {
+      if (changed[row]) {
+        result.addRow(batch, row);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Restores the values that were remembered before the rows collected in {@code undo} passed the
+   * filter. A row position that has been remembered again by a later export keeps the newer values.
+   *
+   * @param undo the {@link Undo} filled by {@link #apply(TableBatch, long, Undo)}
+   */
+  synchronized void rollback(Undo undo) {
+    for (int i = undo.entries.size() - 1; i >= 0; i--) {
+      UndoEntry entry = undo.entries.get(i);
+      if (entry.table.rows[entry.row] == entry.current) {
+        entry.table.rows[entry.row] = entry.previous;
+      }
+    }
+    undo.entries.clear();
+  }
+
+  private TableState newTableState(TableSchema schema) {
+    Threshold[] thresholds = new Threshold[schema.getColumnCount()];
+    for (int i = 0; i < thresholds.length; i++) {
+      String columnName = schema.getColumnNames().get(i).toLowerCase(Locale.ROOT);
+      thresholds[i] = columnThresholds.getOrDefault(columnName, defaultThreshold);
+    }
+    return new TableState(thresholds);
+  }
+
+  private static boolean hasChanged(
+      TableBatch batch, int row, RowState last, Threshold[] thresholds) {
+    for (int column = 0; column < thresholds.length; column++) {
+      Threshold threshold = thresholds[column];
+      if (threshold.ignored) {
+        continue;
+      }
+      Object value = batch.getValue(row, column);
+      if (value instanceof Temporal || value instanceof Date) {
+        continue;
+      }
+      Object lastValue = last.values[column];
+      double lastNumber = last.numbers[column];
+      if (value instanceof Number) {
+        double number = ((Number) value).doubleValue();
+        if (lastValue != null || Double.isNaN(number) != Double.isNaN(lastNumber)) {
+          return true;
+        }
+        if (!Double.isNaN(number) && Math.abs(number - lastNumber) > threshold.limit(lastNumber)) {
+          return true;
+        }
+      } else if (value == null) {
+        if (lastValue != null || !Double.isNaN(lastNumber)) {
+          return true;
+        }
+      } else if (!value.equals(lastValue)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static RowState remember(TableBatch batch, int row, long nowNanos) {
+    int columnCount = batch.getSchema().getColumnCount();
+    RowState state = new RowState(columnCount);
+    for (int column = 0; column < columnCount; column++) {
+      Object value = batch.getValue(row, column);
+      if (value instanceof Number) {
+        state.numbers[column] = ((Number) value).doubleValue();
+        state.values[column] = null;
+      } else {
+        state.numbers[column] = Double.NaN;
+        state.values[column] = value;
+      }
+    }
+    state.exportedNanos = nowNanos;
+    return state;
+  }
+
+  /** The values replaced by {@link #apply(TableBatch, long, Undo)} for one export. */
+  static final class Undo {
+    private final List<UndoEntry> entries = new ArrayList<>(0);
+
+    private void add(TableState table, int row, RowState previous, RowState current) {
+      entries.add(new UndoEntry(table, row, previous, current));
+    }
+  }
+
+  /** One replaced row position. */
+  private static final class UndoEntry {
+    private final TableState table;
+    private final int row;
+    private final RowState previous;
+    private final RowState current;
+
+    private UndoEntry(TableState table, int row, RowState previous, RowState current) {
+      this.table = table;
+      this.row = row;
+      this.previous = previous;
+      this.current = current;
+    }
+  }
+
+  /** The deadband of one column. */
+  private static final class Threshold {
+    private final double absolute;
+    private final double relative;
+    private final boolean ignored;
+
+    private Threshold(double absolute, double relative, boolean ignored) {
+      this.absolute = absolute;
+      this.relative = relative;
+      this.ignored = ignored;
+    }
+
+    private static Threshold parse(String value) {
+      String trimmed = value.trim();
+      if (trimmed.equalsIgnoreCase(IGNORE)) {
+        return IGNORED;
+      }
+      try {
+        if (trimmed.endsWith("%")) {
+          double percent = Double.parseDouble(trimmed.substring(0, trimmed.length() - 1).trim());
+          return new Threshold(0, Math.abs(percent) / 100, false);
+        }
+        return new Threshold(Math.abs(Double.parseDouble(trimmed)), 0, false);
+      } catch (NumberFormatException e) {
+        Logger.warn("invalid deadband '{}', export every change", trimmed);
+        return EXACT;
+      }
+    }
+
+    private double limit(double lastNumber) {
+      return Math.max(absolute, relative * Math.abs(lastNumber));
+    }
+  }
+
+  /** The remembered rows of one table. */
+  private static final class TableState {
+    private final Threshold[] thresholds;
+    private RowState[] rows = new RowState[1];
+
+    private TableState(Threshold[] thresholds) {
+      this.thresholds = thresholds;
+    }
+
+    private void ensureRows(int rowCount) {
+      if (rowCount > rows.length) {
+        rows = Arrays.copyOf(rows, rowCount);
+      }
+    }
+  }
+
+  /** The values of the last exported row at one position. */
+  private static final class RowState {
+    private final double[] numbers;
+    private final Object[] values;
+    private long exportedNanos;
+
+    private RowState(int columnCount) {
+      numbers = new double[columnCount];
+      values = new Object[columnCount];
+    }
+  }
+}
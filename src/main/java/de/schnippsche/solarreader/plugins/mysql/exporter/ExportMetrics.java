@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the metrics of the export pipeline.
+ *
+ * <p>The metrics can be read directly with {@link MySQLExporter#getMetrics()} or over JMX, see
+ * {@link ExportMetricsMXBean}. Recording only uses atomic counters and {@link Histogram}s, so it
+ * does not add contention to the write path.
+ */
+public final class ExportMetrics implements ExportMetricsMXBean {
+  private static final long RATE_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+  private static final String UNKNOWN_SQL_STATE = "unknown";
+  private final ExportQueue<?> queue;
+  private volatile ExportSpool spool;
+  private final AtomicInteger peakQueueDepth = new AtomicInteger();
+  private final Histogram exportLatency = new Histogram();
+  private final Map<String, Histogram> tableWrite = new ConcurrentHashMap<>();
+  private final Histogram connectionAcquire = new Histogram();
+  private final Histogram batchRows = new Histogram();
+  private final Histogram batchExports = new Histogram();
+  private final LongAdder rowsWritten = new LongAdder();
+  private final LongAdder bytesWritten = new LongAdder();
+  private final LongAdder rowsFiltered = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+  private long windowStart = System.nanoTime();
+  private long windowRows;
+  private long windowBytes;
+  private double rowsPerSecond;
+  private double bytesPerSecond;
+
+  /**
+   * Constructs a new {@code ExportMetrics} for the given queue.
+   *
+   * @param queue the export queue whose depth is reported
+   */
+  ExportMetrics(ExportQueue<?> queue) {
+    this.queue = queue;
+  }
+
+  /**
+   * Sets the spool whose pending records are reported.
+   *
+   * @param spool the open {@link ExportSpool}, or {@code null} without a spool
+   */
+  void setSpool(ExportSpool spool) {
+    this.spool = spool;
+  }
+
+  /** Updates the peak queue depth after an export was queued. */
+  void recordQueued() {
+    peakQueueDepth.accumulateAndGet(queue.size(), Math::max);
+  }
+
+  /**
+   * Records the commit of an export.
+   *
+   * @param enqueuedNanos the {@link System#nanoTime()} when the export was added
+   */
+  void recordCommitted(long enqueuedNanos) {
+    exportLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - enqueuedNanos));
+  }
+
+  /**
+   * Records a committed write round.
+   *
+   * @param exports the number of combined exports
+   * @param rows the number of rows
+   * @param bytes the estimated size of the values
+   */
+  void recordRound(int exports, long rows, long bytes) {
+    batchExports.record(exports);
+    batchRows.record(rows);
+    rowsWritten.add(rows);
+    bytesWritten.add(bytes);
+  }
+
+  /**
+   * Records rows skipped by the {@link DeadbandFilter}.
+   *
+   * @param rows the number of skipped rows
+   */
+  void recordFiltered(int rows) {
+    rowsFiltered.add(rows);
+  }
+
+  /** Records an export that was given up after repeated errors. */
+  void recordRejected() {
+    rejected.increment();
+  }
+
+  /**
+   * Records the time needed to write one table.
+   *
+   * @param tableName the table name
+   * @param nanos the duration in nanoseconds
+   */
+  void recordTableWrite(String tableName, long nanos) {
+    tableWrite
+        .computeIfAbsent(tableName, k -> new Histogram())
+        .record(TimeUnit.NANOSECONDS.toMicros(nanos));
+  }
+
+  /**
+   * Records the time needed to obtain a pooled connection.
+   *
+   * @param nanos the duration in nanoseconds
+   */
+  void recordConnectionAcquire(long nanos) {
+    connectionAcquire.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+  }
+
+  /**
+   * Records a database error.
+   *
+   * @param sqlState the SQLState of the error, may be {@code null}
+   */
+  void recordError(String sqlState) {
+    errors
+        .computeIfAbsent(sqlState == null ? UNKNOWN_SQL_STATE : sqlState, k -> new LongAdder())
+        .increment();
+  }
+
+  @Override
+  public int getQueueDepth() {
+    return queue.size();
+  }
+
+  @Override
+  public int getPeakQueueDepth() {
+    return peakQueueDepth.get();
+  }
+
+  @Override
+  public long getQueueBytes() {
+    return queue.getBytes();
+  }
+
+  @Override
+  public long getBlockedCount() {
+    return queue.getBlockedCount();
+  }
+
+  @Override
+  public long getDroppedCount() {
+    return queue.getDroppedNewestCount() + queue.getDroppedOldestCount();
+  }
+
+  @Override
+  public long getSpilledCount() {
+    return queue.getSpilledCount();
+  }
+
+  @Override
+  public int getSpoolPendingCount() {
+    ExportSpool currentSpool = spool;
+    return currentSpool != null ? currentSpool.getPendingCount() : 0;
+  }
+
+  @Override
+  public long getRejectedCount() {
+    return rejected.sum();
+  }
+
+  @Override
+  public HistogramSnapshot getExportLatencyMicros() {
+    return exportLatency.snapshot();
+  }
+
+  @Override
+  public Map<String, HistogramSnapshot> getTableWriteMicros() {
+    Map<String, HistogramSnapshot> result = new TreeMap<>();
+    tableWrite.forEach((table, histogram) -> result.put(table, histogram.snapshot()));
+    return result;
+  }
+
+  @Override
+  public HistogramSnapshot getConnectionAcquireMicros() {
+    return connectionAcquire.snapshot();
+  }
+
+  @Override
+  public HistogramSnapshot getBatchRows() {
+    return batchRows.snapshot();
+  }
+
+  @Override
+  public HistogramSnapshot getBatchExports() {
+    return batchExports.snapshot();
+  }
+
+  @Override
+  public long getRowsWritten() {
+    return rowsWritten.sum();
+  }
+
+  @Override
+  public long getRowsFiltered() {
+    return rowsFiltered.sum();
+  }
+
+  @Override
+  public long getBytesWritten() {
+    return bytesWritten.sum();
+  }
+
+  @Override
+  public synchronized double getRowsPerSecond() {
+    updateRates();
+    return rowsPerSecond;
+  }
+
+  @Override
+  public synchronized double getBytesPerSecond() {
+    updateRates();
+    return bytesPerSecond;
+  }
+
+  @Override
+  public Map<String, Long> getErrorCounts() {
+    Map<String, Long> result = new TreeMap<>();
+    errors.forEach((sqlState, count) -> result.put(sqlState, count.sum()));
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "queue=%d (peak %d), rows=%d (%.1f/s), latency[us]: %s",
+        getQueueDepth(),
+        getPeakQueueDepth(),
+        getRowsWritten(),
+        getRowsPerSecond(),
+        getExportLatencyMicros());
+  }
+
+  /** Closes the current rate window once it is complete. */
+  private void updateRates() {
+    long now = System.nanoTime();
+    long elapsed = now - windowStart;
+    if (elapsed < RATE_WINDOW_NANOS) {
+      return;
+    }
+    long rows = rowsWritten.sum();
+    long bytes = bytesWritten.sum();
+    double seconds = elapsed / 1e9;
+    rowsPerSecond = (rows - windowRows) / seconds;
+    bytesPerSecond = (bytes - windowBytes) / seconds;
+    windowStart = now;
+    windowRows = rows;
+    windowBytes = bytes;
+  }
+}
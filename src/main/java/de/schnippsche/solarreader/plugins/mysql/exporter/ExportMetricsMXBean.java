@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.util.Map;
+
+/**
+ * The metrics of a {@link MySQLExporter}, registered as MXBean under {@code
+ * de.schnippsche.solarreader.plugins:type=MySQLExporter,name=<exporter name>}.
+ *
+ * <p>Durations are reported in microseconds. Rates are averaged over the most recent window of at
+ * least one minute.
+ */
+public interface ExportMetricsMXBean {
+
+  /**
+   * Returns the number of exports currently waiting in the queue.
+   *
+   * @return the current queue depth
+   */
+  int getQueueDepth();
+
+  /**
+   * Returns the largest queue depth seen since the start.
+   *
+   * @return the peak queue depth
+   */
+  int getPeakQueueDepth();
+
+  /**
+   * Returns the estimated heap memory of the queued exports.
+   *
+   * @return the queued bytes
+   */
+  long getQueueBytes();
+
+  /**
+   * Returns how often a producer had to wait for free space in the queue.
+   *
+   * @return the number of blocked offers
+   */
+  long getBlockedCount();
+
+  /**
+   * Returns the number of exports dropped by the overflow policy.
+   *
+   * @return the number of dropped exports
+   */
+  long getDroppedCount();
+
+  /**
+   * Returns the number of exports spilled to the spool by the overflow policy.
+   *
+   * @return the number of spilled exports
+   */
+  long getSpilledCount();
+
+  /**
+   * Returns the number of exports in the spool that are not committed yet.
+   *
+   * @return the number of pending spool records, 0 without a spool
+   */
+  int getSpoolPendingCount();
+
+  /**
+   * Returns the number of exports given up because the database rejected them repeatedly.
+   *
+   * @return the number of rejected exports
+   */
+  long getRejectedCount();
+
+  /**
+   * Returns the time from {@code addExport} until the commit of an export.
+   *
+   * @return the latency distribution in microseconds
+   */
+  HistogramSnapshot getExportLatencyMicros();
+
+  /**
+   * Returns the time needed to write each table, keyed by table name.
+   *
+   * @return the write duration distribution per table in microseconds
+   */
+  Map<String, HistogramSnapshot> getTableWriteMicros();
+
+  /**
+   * Returns the time needed to obtain a pooled database connection.
+   *
+   * @return the acquire time distribution in microseconds
+   */
+  HistogramSnapshot getConnectionAcquireMicros();
+
+  /**
+   * Returns the number of rows committed per write round.
+   *
+   * @return the batch size distribution in rows
+   */
+  HistogramSnapshot getBatchRows();
+
+  /**
+   * Returns the number of exports combined per write round.
+   *
+   * @return the batch size distribution in exports
+   */
+  HistogramSnapshot getBatchExports();
+
+  /**
+   * Returns the total number of committed rows.
+   *
+   * @return the committed rows
+   */
+  long getRowsWritten();
+
+  /**
+   * Returns the total number of rows skipped because their values did not change.
+   *
+   * @return the filtered rows
+   */
+  long getRowsFiltered();
+
+  /**
+   * Returns the estimated total size of the committed values.
+   *
+   * @return the committed bytes
+   */
+  long getBytesWritten();
+
+  /**
+   * Returns the committed rows per second.
+   *
+   * @return the row rate
+   */
+  double getRowsPerSecond();
+
+  /**
+   * Returns the committed bytes per second.
+   *
+   * @return the byte rate
+   */
+  double getBytesPerSecond();
+
+  /**
+   * Returns the number of database errors, keyed by SQLState.
+   *
+   * @return the error counts per SQLState
+   */
+  Map<String, Long> getErrorCounts();
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * A bounded FIFO queue for pending exports.
+ *
+ * <p>The queue is limited both by the number of entries and by the estimated memory of the queued
+ * entries, which is calculated by a weigher function. When a new entry does not fit, the configured
+ * {@link OverflowPolicy} decides whether the producer waits, the oldest entry is dropped or the new
+ * entry is dropped or spilled. Every policy action is counted, so the behavior under sustained
+ * database slowness can be monitored. Entries dropped to make room are passed to a drop listener
+ * after the lock is released, so the listener may block or run callbacks without holding up
+ * producers and the consumer.
+ *
+ * <p>A single entry that is larger than the memory limit is accepted if the queue is empty, so it
+ * can never block the producer forever.
+ *
+ * <p>Entries pass a store function when they are added and a load function when they are removed,
+ * both called while holding the lock. This allows the entries to be kept in another form while
+ * they wait, e.g. outside the Java heap, as long as the stored form is loaded in FIFO order.
+ *
+ * @param <E> the type of the queued entries
+ */
+final class ExportQueue<E> {
+  private final ArrayDeque<E> entries = new ArrayDeque<>();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+  private final ToLongFunction<E> weigher;
+  private final Consumer<E> dropListener;
+  private final UnaryOperator<E> store;
+  private final UnaryOperator<E> load;
+  private final AtomicLong blockedCount = new AtomicLong();
+  private final AtomicLong droppedOldestCount = new AtomicLong();
+  private final AtomicLong droppedNewestCount = new AtomicLong();
+  private final AtomicLong spilledCount = new AtomicLong();
+  private volatile int maxEntries;
+  private volatile long maxBytes;
+  private volatile OverflowPolicy policy;
+  private long bytes;
+
+  /**
+   * Constructs a new {@code ExportQueue}.
+   *
+   * @param maxEntries the maximum number of entries
+   * @param maxBytes the maximum estimated size of all entries in bytes
+   * @param policy the {@link OverflowPolicy} applied when the queue is full
+   * @param weigher the function estimating the size of an entry in bytes
+   * @param dropListener called for every entry removed by {@link OverflowPolicy#DROP_OLDEST}
+   * @param store converts an added entry into the form kept in the queue; the weight of the
+   *     converted entry must be the same
+   * @param load converts a removed entry back from the form kept in the queue
+   */
+  ExportQueue(
+      int maxEntries,
+      long maxBytes,
+      OverflowPolicy policy,
+      ToLongFunction<E> weigher,
+      Consumer<E> dropListener,
+      UnaryOperator<E> store,
+      UnaryOperator<E> load) {
+    this.weigher = weigher;
+    this.dropListener = dropListener;
+    this.store = store;
+    this.load = load;
+    configure(maxEntries, maxBytes, policy);
+  }
+
+  /**
+   * Changes the limits and the overflow policy. Entries already in the queue are kept even if they
+   * exceed the new limits.
+   *
+   * @param maxEntries the maximum number of entries
+   * @param maxBytes the maximum estimated size of all entries in bytes
+   * @param policy the {@link OverflowPolicy} applied when the queue is full
+   */
+  void configure(int maxEntries, long maxBytes, OverflowPolicy policy) {
+    lock.lock();
+    try {
+      this.maxEntries = Math.max(1, maxEntries);
+      this.maxBytes = Math.max(1, maxBytes);
+      this.policy = policy;
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Adds an entry according to the {@link OverflowPolicy}.
+   *
+   * <p>With {@link OverflowPolicy#BLOCK} the caller waits at most {@code timeout} for free space;
+   * if the time elapses, the entry is dropped and counted as dropped newest entry. With {@link
+   * OverflowPolicy#SPILL} the entry is rejected and counted as spilled; the caller is responsible
+   * for writing it to the spool.
+   *
+   * @param entry the entry to add
+   * @param timeout the maximum time to wait with {@link OverflowPolicy#BLOCK}
+   * @param unit the unit of {@code timeout}
+   * @return {@code true} if the entry was added, {@code false} if it was dropped or spilled
+   * @throws InterruptedException if the caller is interrupted while waiting
+   */
+  boolean offer(E entry, long timeout, TimeUnit unit) throws InterruptedException {
+    List<E> dropped = new ArrayList<>(0);
+    try {
+      return offer(entry, unit.toNanos(timeout), dropped);
+    } finally {
+      dropped.forEach(dropListener);
+    }
+  }
+
+  /**
+   * Adds an entry while holding the lock. Entries dropped by {@link OverflowPolicy#DROP_OLDEST} are
+   * collected for the drop listener.
+   *
+   * @param entry the entry to add
+   * @param nanos the maximum time to wait with {@link OverflowPolicy#BLOCK}
+   * @param dropped receives the entries dropped to make room
+   * @return {@code true} if the entry was added, {@code false} if it was dropped or spilled
+   * @throws InterruptedException if the caller is interrupted while waiting
+   */
+  private boolean offer(E entry, long nanos, List<E> dropped) throws InterruptedException {
+    long weight = weigher.applyAsLong(entry);
+    lock.lock();
+    try {
+      if (!hasRoomFor(weight)) {
+        switch (policy) {
+          case DROP_NEWEST:
+            droppedNewestCount.incrementAndGet();
+            return false;
+          case SPILL:
+            spilledCount.incrementAndGet();
+            return false;
+          case DROP_OLDEST:
+            while (!hasRoomFor(weight)) {
+              dropped.add(removeFirst());
+              droppedOldestCount.incrementAndGet();
+            }
+            break;
+          case BLOCK:
+          default:
+            blockedCount.incrementAndGet();
+            while (!hasRoomFor(weight)) {
+              if (nanos <= 0) {
+                droppedNewestCount.incrementAndGet();
+                return false;
+              }
+              nanos = notFull.awaitNanos(nanos);
+            }
+            break;
+        }
+      }
+      entries.addLast(store.apply(entry));
+      bytes += weight;
+      notEmpty.signal();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves and removes the oldest entry, waiting up to the specified time if necessary.
+   *
+   * @param timeout the maximum time to wait
+   * @param unit the unit of {@code timeout}
+   * @return the oldest entry or {@code null} if the time elapsed
+   * @throws InterruptedException if interrupted while waiting
+   */
+  E poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (entries.isEmpty()) {
+        if (nanos <= 0) {
+          return null;
+        }
+        nanos = notEmpty.awaitNanos(nanos);
+      }
+      return removeFirst();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes up to {@code maxElements} entries and adds them to the given collection.
+   *
+   * @param target the collection to add the entries to
+   * @param maxElements the maximum number of entries to transfer
+   * @return the number of transferred entries
+   */
+  int drainTo(Collection<? super E> target, int maxElements) {
+    lock.lock();
+    try {
+      int count = 0;
+      while (count < maxElements && !entries.isEmpty()) {
+        target.add(removeFirst());
+        count++;
+      }
+      return count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of queued entries.
+   *
+   * @return the queue size
+   */
+  int size() {
+    lock.lock();
+    try {
+      return entries.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the estimated size of all queued entries.
+   *
+   * @return the size in bytes
+   */
+  long getBytes() {
+    lock.lock();
+    try {
+      return bytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns how often a producer had to wait for free space.
+   *
+   * @return the number of blocked offers
+   */
+  long getBlockedCount() {
+    return blockedCount.get();
+  }
+
+  /**
+   * Returns how many entries were dropped to make room for newer ones.
+   *
+   * @return the number of dropped oldest entries
+   */
+  long getDroppedOldestCount() {
+    return droppedOldestCount.get();
+  }
+
+  /**
+   * Returns how many new entries were rejected because the queue was full.
+   *
+   * @return the number of dropped newest entries
+   */
+  long getDroppedNewestCount() {
+    return droppedNewestCount.get();
+  }
+
+  /**
+   * Returns how many new entries were rejected for spilling because the queue was full.
+   *
+   * @return the number of spilled entries
+   */
+  long getSpilledCount() {
+    return spilledCount.get();
+  }
+
+  /**
+   * Returns the current overflow policy.
+   *
+   * @return the {@link OverflowPolicy}
+   */
+  OverflowPolicy getPolicy() {
+    return policy;
+  }
+
+  private boolean hasRoomFor(long weight) {
+    return entries.isEmpty() || (entries.size() < maxEntries && bytes + weight <= maxBytes);
+  }
+
+  private E removeFirst() {
+    E entry = entries.removeFirst();
+    bytes -= weigher.applyAsLong(entry);
+    notFull.signal();
+    return load.apply(entry);
+  }
+}
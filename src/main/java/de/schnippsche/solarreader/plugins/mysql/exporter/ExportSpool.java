@@ -0,0 +1,562 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import org.tinylog.Logger;
+
+/**
+ * An append-only, segment-based spool for exports that have not yet been committed to the
+ * database.
+ *
+ * <p>Every record is appended to the active segment file as {@code [length][crc32][payload]},
+ * where the payload is the {@link TableBatchCodec} encoding of the batches. A segment is rolled
+ * over when it reaches its maximum size and deleted as soon as all of its records have been
+ * acknowledged, so the spool only causes sequential writes.
+ *
+ * <p>For each record the spool tracks whether it has been acknowledged and whether a copy is
+ * currently held in memory. Records without an in-memory copy are returned by {@link
+ * #readReplayable(int)}, which includes all records found in segment files at startup. A record id
+ * combines the segment number and the index of the record within the segment.
+ *
+ * <p>Acknowledgements are appended as record indices to an ack file next to the segment and forced
+ * to the storage device, so records committed before a restart are not replayed again.
+ */
+final class ExportSpool implements AutoCloseable {
+  private static final String SUFFIX = ".spool";
+  private static final String ACK_SUFFIX = ".ack";
+  private static final String DEAD_LETTER_FILE = "deadletter.dead";
+  private static final int HEADER_SIZE = 8;
+  private final Path directory;
+  private final long maxSegmentSize;
+  private final Map<Long, Segment> segments = new TreeMap<>();
+  private Segment active;
+  private long nextSegmentId;
+
+  /**
+   * Constructs a new {@code ExportSpool}.
+   *
+   * @param directory the directory holding the segment files
+   * @param maxSegmentSize the size after which a new segment is started
+   */
+  ExportSpool(Path directory, long maxSegmentSize) {
+    this.directory = directory;
+    this.maxSegmentSize = maxSegmentSize;
+  }
+
+  /**
+   * Opens the spool and registers the records of existing segment files for replay, except those
+   * listed in the ack file of the segment. An incomplete record at the end of a segment, e.g. after
+   * a power failure, is truncated. Ack files without a segment are deleted.
+   *
+   * @throws IOException if the spool directory cannot be read
+   */
+  synchronized void open() throws IOException {
+    Files.createDirectories(directory);
+    List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+      stream.forEach(files::add);
+    }
+    files.sort(null);
+    for (Path file : files) {
+      String name = file.getFileName().toString();
+      long id;
+      try {
+        id = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+      } catch (NumberFormatException e) {
+        Logger.warn("ignore unknown spool file {}", file);
+        continue;
+      }
+      Segment segment = recover(id, file);
+      if (segment.isComplete()) {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(segment.ackPath);
+      } else {
+        segments.put(id, segment);
+        Logger.info(
+            "spool segment {} contains {} export(s) to replay",
+            file,
+            segment.recordCount - segment.done.cardinality());
+      }
+      nextSegmentId = Math.max(nextSegmentId, id + 1);
+    }
+    Set<Path> known = new HashSet<>();
+    segments.values().forEach(segment -> known.add(segment.ackPath));
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + ACK_SUFFIX)) {
+      for (Path ackFile : stream) {
+        if (!known.contains(ackFile)) {
+          Files.deleteIfExists(ackFile);
+        }
+      }
+    }
+  }
+
+  /**
+   * Appends a record to the spool and forces it to the storage device.
+   *
+   * @param batches the batches to store
+   * @param inMemory {@code true} if the caller keeps the export in memory and will acknowledge or
+   *     release it later, {@code false} if the record must be replayed from the spool
+   * @return the id of the new record
+   * @throws IOException if the record cannot be written
+   */
+  synchronized long append(List<TableBatch> batches, boolean inMemory) throws IOException {
+    byte[] payload = TableBatchCodec.encode(batches);
+    if (active == null || active.size >= maxSegmentSize) {
+      rollSegment();
+    }
+    ByteBuffer buffer = frame(payload);
+    long offset = active.size;
+    while (buffer.hasRemaining()) {
+      active.channel.write(buffer, offset + buffer.position());
+    }
+    active.channel.force(false);
+    active.size += HEADER_SIZE + payload.length;
+    int index = active.addRecord(offset);
+    if (inMemory) {
+      active.inMemory.set(index);
+    }
+    return recordId(active.id, index);
+  }
+
+  /**
+   * Appends an export that the database keeps rejecting to the dead-letter file of the spool and
+   * forces it to the storage device. The file uses the record format of a segment, so it can be
+   * replayed by renaming it to a segment name once the cause has been fixed.
+   *
+   * @param batches the batches of the rejected export
+   * @return the dead-letter file
+   * @throws IOException if the record cannot be written
+   */
+  synchronized Path deadLetter(List<TableBatch> batches) throws IOException {
+    ByteBuffer buffer = frame(TableBatchCodec.encode(batches));
+    Path file = directory.resolve(DEAD_LETTER_FILE);
+    try (FileChannel channel =
+        FileChannel.open(
+            file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(false);
+    }
+    return file;
+  }
+
+  /**
+   * Marks a record as committed. Segments whose records are all committed are deleted.
+   *
+   * @param recordId the id of the record
+   */
+  synchronized void acknowledge(long recordId) {
+    acknowledge(List.of(recordId));
+  }
+
+  /**
+   * Marks records as committed. The acknowledgements are written with one forced write per
+   * segment. Segments whose records are all committed are deleted.
+   *
+   * @param recordIds the ids of the records
+   */
+  synchronized void acknowledge(Collection<Long> recordIds) {
+    Map<Segment, List<Integer>> indices = new LinkedHashMap<>();
+    for (long recordId : recordIds) {
+      Segment segment = segments.get(segmentId(recordId));
+      if (segment != null) {
+        indices.computeIfAbsent(segment, s -> new ArrayList<>()).add(recordIndex(recordId));
+      }
+    }
+    for (Map.Entry<Segment, List<Integer>> entry : indices.entrySet()) {
+      Segment segment = entry.getKey();
+      for (int index : entry.getValue()) {
+        segment.done.set(index);
+        segment.inMemory.clear(index);
+      }
+      writeAcks(segment, entry.getValue());
+      if (segment != active && segment.isComplete()) {
+        delete(segment);
+      }
+    }
+  }
+
+  /**
+   * Releases the in-memory copy of a record, so it will be replayed from the spool.
+   *
+   * @param recordId the id of the record
+   */
+  synchronized void release(long recordId) {
+    Segment segment = segments.get(segmentId(recordId));
+    if (segment != null) {
+      segment.inMemory.clear(recordIndex(recordId));
+    }
+  }
+
+  /**
+   * Checks whether the spool contains records that have to be replayed.
+   *
+   * @return {@code true} if {@link #readReplayable(int)} would return at least one export
+   */
+  synchronized boolean hasReplayable() {
+    for (Segment segment : segments.values()) {
+      if (segment.nextReplayable(0) >= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the number of records that have not been committed yet.
+   *
+   * @return the number of pending records
+   */
+  synchronized int getPendingCount() {
+    int count = 0;
+    for (Segment segment : segments.values()) {
+      count += segment.recordCount - segment.done.cardinality();
+    }
+    return count;
+  }
+
+  /**
+   * Reads up to {@code maxRecords} records that have to be replayed, oldest first. The returned
+   * records are marked as held in memory and must be acknowledged or released by the caller.
+   * Records that cannot be read or decoded are logged and skipped.
+   *
+   * @param maxRecords the maximum number of records to read
+   * @return the replayed exports
+   * @throws IOException if a segment file cannot be read
+   */
+  synchronized List<PendingExport> readReplayable(int maxRecords) throws IOException {
+    List<PendingExport> result = new ArrayList<>();
+    for (Segment segment : new ArrayList<>(segments.values())) {
+      int index = segment.nextReplayable(0);
+      if (index < 0) {
+        continue;
+      }
+      try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+        while (index >= 0 && result.size() < maxRecords) {
+          long recordId = recordId(segment.id, index);
+          byte[] payload = readRecord(channel, segment.offsets[index]);
+          try {
+            if (payload == null) {
+              throw new IOException("incomplete record or checksum mismatch");
+            }
+            result.add(new PendingExport(TableBatchCodec.decode(payload), recordId));
+            segment.inMemory.set(index);
+          } catch (IOException e) {
+            Logger.error("skip corrupt spool record {} in {}: {}", index, segment.path, e);
+            segment.done.set(index);
+            writeAcks(segment, List.of(index));
+          }
+          index = segment.nextReplayable(index + 1);
+        }
+      }
+      if (segment != active && segment.isComplete()) {
+        delete(segment);
+      }
+      if (result.size() >= maxRecords) {
+        break;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Closes the active segment and deletes all segments whose records are committed.
+   */
+  @Override
+  public synchronized void close() {
+    if (active != null) {
+      closeChannel(active);
+      active = null;
+    }
+    for (Segment segment : new ArrayList<>(segments.values())) {
+      closeAckChannel(segment);
+      if (segment.isComplete()) {
+        delete(segment);
+      }
+    }
+  }
+
+  private void rollSegment() throws IOException {
+    if (active != null) {
+      closeChannel(active);
+      Segment previous = active;
+      active = null;
+      if (previous.isComplete()) {
+        delete(previous);
+      }
+    }
+    long id = nextSegmentId++;
+    Path path = directory.resolve(String.format("%020d%s", id, SUFFIX));
+    Segment segment = new Segment(id, path, ackPath(id));
+    segment.channel =
+        FileChannel.open(
+            path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.READ);
+    segments.put(id, segment);
+    active = segment;
+  }
+
+  private Segment recover(long id, Path file) throws IOException {
+    Segment segment = new Segment(id, file, ackPath(id));
+    try (FileChannel channel =
+        FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      long fileSize = channel.size();
+      long offset = 0;
+      while (offset + HEADER_SIZE <= fileSize) {
+        // a record with a wrong checksum is kept and skipped on replay, only an incomplete one
+        // is cut off
+        int length = readLength(channel, offset);
+        if (length < 0) {
+          break;
+        }
+        segment.addRecord(offset);
+        offset += HEADER_SIZE + length;
+      }
+      if (offset < fileSize) {
+        Logger.warn("truncate corrupt spool segment {} at {} of {} bytes", file, offset, fileSize);
+        channel.truncate(offset);
+      }
+      segment.size = offset;
+    }
+    if (Files.exists(segment.ackPath)) {
+      recoverAcks(segment);
+    }
+    return segment;
+  }
+
+  /**
+   * Applies the ack file of a recovered segment. An incomplete index at the end of the file, e.g.
+   * after a power failure, is truncated.
+   */
+  private void recoverAcks(Segment segment) throws IOException {
+    try (FileChannel channel =
+        FileChannel.open(segment.ackPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      long fileSize = channel.size();
+      long validSize = fileSize - fileSize % Integer.BYTES;
+      ByteBuffer buffer = ByteBuffer.allocate((int) validSize);
+      if (!readFully(channel, buffer, 0)) {
+        throw new IOException("cannot read " + segment.ackPath);
+      }
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        int index = buffer.getInt();
+        if (index >= 0 && index < segment.recordCount) {
+          segment.done.set(index);
+        }
+      }
+      if (validSize < fileSize) {
+        Logger.warn("truncate corrupt spool ack file {} at {} bytes", segment.ackPath, validSize);
+        channel.truncate(validSize);
+      }
+    }
+  }
+
+  /**
+   * Appends record indices to the ack file of a segment and forces them to the storage device. A
+   * failure is logged, the records are then replayed again after a restart.
+   */
+  private void writeAcks(Segment segment, List<Integer> indices) {
+    ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * indices.size());
+    indices.forEach(buffer::putInt);
+    buffer.flip();
+    try {
+      if (segment.ackChannel == null) {
+        segment.ackChannel =
+            FileChannel.open(
+                segment.ackPath,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+      }
+      while (buffer.hasRemaining()) {
+        segment.ackChannel.write(buffer);
+      }
+      segment.ackChannel.force(false);
+    } catch (IOException e) {
+      Logger.warn("cannot write spool ack file {}: {}", segment.ackPath, e.getMessage());
+    }
+  }
+
+  private static ByteBuffer frame(byte[] payload) {
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+    buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+    return buffer;
+  }
+
+  /**
+   * Reads and verifies the record at the given offset.
+   *
+   * @return the payload or {@code null} if the record is incomplete or its checksum is wrong
+   */
+  private byte[] readRecord(FileChannel channel, long offset) throws IOException {
+    int length = readLength(channel, offset);
+    if (length < 0) {
+      return null;
+    }
+    ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+    if (!readFully(channel, header, offset + Integer.BYTES)) {
+      return null;
+    }
+    int checksum = header.getInt(0);
+    ByteBuffer payload = ByteBuffer.allocate(length);
+    if (!readFully(channel, payload, offset + HEADER_SIZE)) {
+      return null;
+    }
+    CRC32 crc = new CRC32();
+    crc.update(payload.array());
+    return (int) crc.getValue() == checksum ? payload.array() : null;
+  }
+
+  /**
+   * Reads the payload length of the record at the given offset.
+   *
+   * @return the length or -1 if the record is incomplete
+   */
+  private int readLength(FileChannel channel, long offset) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+    if (!readFully(channel, header, offset)) {
+      return -1;
+    }
+    int length = header.getInt(0);
+    return length < 0 || offset + HEADER_SIZE + length > channel.size() ? -1 : length;
+  }
+
+  private boolean readFully(FileChannel channel, ByteBuffer buffer, long offset)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, offset + buffer.position()) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void delete(Segment segment) {
+    segments.remove(segment.id);
+    closeAckChannel(segment);
+    try {
+      // the segment first: an ack file left behind is deleted on the next open
+      Files.deleteIfExists(segment.path);
+      Files.deleteIfExists(segment.ackPath);
+    } catch (IOException e) {
+      Logger.warn("cannot delete spool segment {}: {}", segment.path, e.getMessage());
+    }
+  }
+
+  private void closeChannel(Segment segment) {
+    try {
+      segment.channel.close();
+    } catch (IOException e) {
+      Logger.warn("cannot close spool segment {}: {}", segment.path, e.getMessage());
+    }
+    segment.channel = null;
+  }
+
+  private void closeAckChannel(Segment segment) {
+    if (segment.ackChannel == null) {
+      return;
+    }
+    try {
+      segment.ackChannel.close();
+    } catch (IOException e) {
+      Logger.warn("cannot close spool ack file {}: {}", segment.ackPath, e.getMessage());
+    }
+    segment.ackChannel = null;
+  }
+
+  private Path ackPath(long segmentId) {
+    return directory.resolve(String.format("%020d%s", segmentId, ACK_SUFFIX));
+  }
+
+  private static long recordId(long segmentId, int index) {
+    return (segmentId << 32) | index;
+  }
+
+  private static long segmentId(long recordId) {
+    return recordId >>> 32;
+  }
+
+  private static int recordIndex(long recordId) {
+    return (int) recordId;
+  }
+
+  /** A segment file with the state of its records. */
+  private static final class Segment {
+    private final long id;
+    private final Path path;
+    private final Path ackPath;
+    private final BitSet done = new BitSet();
+    private final BitSet inMemory = new BitSet();
+    private long[] offsets = new long[16];
+    private int recordCount;
+    private long size;
+    private FileChannel channel;
+    private FileChannel ackChannel;
+
+    private Segment(long id, Path path, Path ackPath) {
+      this.id = id;
+      this.path = path;
+      this.ackPath = ackPath;
+    }
+
+    private int addRecord(long offset) {
+      if (recordCount == offsets.length) {
+        offsets = Arrays.copyOf(offsets, recordCount * 2);
+      }
+      offsets[recordCount] = offset;
+      return recordCount++;
+    }
+
+    private boolean isComplete() {
+      return done.cardinality() == recordCount;
+    }
+
+    private int nextReplayable(int fromIndex) {
+      for (int i = fromIndex; i < recordCount; i++) {
+        if (!done.get(i) && !inMemory.get(i)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+}
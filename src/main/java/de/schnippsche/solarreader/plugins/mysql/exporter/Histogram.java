@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram with power-of-two buckets.
+ *
+ * <p>Bucket {@code n} counts the values between {@code 2^(n-1)} and {@code 2^n - 1}, so recording
+ * costs a few atomic increments and the memory is fixed. Percentiles are approximated by the upper
+ * bound of the bucket containing them, which is accurate to a factor of two and sufficient for
+ * capacity planning.
+ */
+final class Histogram {
+  private static final int BUCKETS = 64;
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records a value. Negative values are recorded as {@code 0}.
+   *
+   * @param value the value
+   */
+  void record(long value) {
+    long v = Math.max(0, value);
+    buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(v)));
+    count.increment();
+    sum.add(v);
+    max.accumulateAndGet(v, Math::max);
+  }
+
+  /**
+   * Creates a snapshot of the current distribution.
+   *
+   * @return the {@link HistogramSnapshot}
+   */
+  HistogramSnapshot snapshot() {
+    long[] counts = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets.get(i);
+      total += counts[i];
+    }
+    long maxValue = max.get();
+    return new HistogramSnapshot(
+        total,
+        total == 0 ? 0 : (double) sum.sum() / total,
+        maxValue,
+        percentile(counts, total, 0.50, maxValue),
+        percentile(counts, total, 0.95, maxValue),
+        percentile(counts, total, 0.99, maxValue));
+  }
+
+  private static long percentile(long[] counts, long total, double quantile, long maxValue) {
+    if (total == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(quantile * total);
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        long upperBound = i == 0 ? 0 : (1L << Math.min(i, 62)) - 1;
+        return Math.min(upperBound, maxValue);
+      }
+    }
+    return maxValue;
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+/**
+ * An immutable view of a {@link Histogram}. The values are in the unit the histogram was recorded
+ * in, as stated by the name of the metric.
+ */
+public final class HistogramSnapshot {
+  private final long count;
+  private final double mean;
+  private final long max;
+  private final long p50;
+  private final long p95;
+  private final long p99;
+
+  /**
+   * Constructs a new {@code HistogramSnapshot}.
+   *
+   * @param count the number of recorded values
+   * @param mean the mean value
+   * @param max the maximum value
+   * @param p50 the approximate median
+   * @param p95 the approximate 95th percentile
+   * @param p99 the approximate 99th percentile
+   */
+  public HistogramSnapshot(long count, double mean, long max, long p50, long p95, long p99) {
+    this.count = count;
+    this.mean = mean;
+    this.max = max;
+    this.p50 = p50;
+    this.p95 = p95;
+    this.p99 = p99;
+  }
+
+  /**
+   * Returns the number of recorded values.
+   *
+   * @return the count
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the mean of the recorded values.
+   *
+   * @return the mean
+   */
+  public double getMean() {
+    return mean;
+  }
+
+  /**
+   * Returns the largest recorded value.
+   *
+   * @return the maximum
+   */
+  public long getMax() {
+    return max;
+  }
+
+  /**
+   * Returns the approximate median.
+   *
+   * @return the 50th percentile
+   */
+  public long getP50() {
+    return p50;
+  }
+
+  /**
+   * Returns the approximate 95th percentile.
+   *
+   * @return the 95th percentile
+   */
+  public long getP95() {
+    return p95;
+  }
+
+  /**
+   * Returns the approximate 99th percentile.
+   *
+   * @return the 99th percentile
+   */
+  public long getP99() {
+    return p99;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "count=%d, mean=%.1f, p50=%d, p95=%d, p99=%d, max=%d", count, mean, p50, p95, p99, max);
+  }
+}
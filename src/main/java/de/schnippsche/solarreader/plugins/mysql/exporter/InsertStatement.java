@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The prebuilt {@code INSERT} statement of a {@link TableSchema}.
+ *
+ * <p>The column list and the placeholder tuple are built once when the statement is created. The
+ * single-row SQL used by the batch path is kept as a constant; multi-row SQL is assembled from the
+ * prebuilt parts, and the most recently requested variant is remembered because consecutive
+ * chunks of a large batch usually have the same number of rows.
+ *
+ * <p>For large batches the schema also provides a {@code LOAD DATA LOCAL INFILE} statement that
+ * reads the rows as tab-separated text in the same column order.
+ *
+ * <p>The {@link UpsertMode} selects the handling of existing keys. With {@link UpsertMode#UPDATE}
+ * every column outside the key is overwritten by {@code ON DUPLICATE KEY UPDATE c = VALUES(c)}.
+ * {@code LOAD DATA} has no such clause, and its {@code REPLACE} deletes the existing row, which
+ * resets the columns not loaded and assigns a new {@code AUTO_INCREMENT} id, so these statements
+ * have no bulk load. If all columns belong to the key, there is nothing to update and the rows are
+ * inserted with {@code IGNORE}.
+ *
+ * <p>Note that {@code LOAD DATA LOCAL} skips duplicate keys with a warning even without {@code
+ * IGNORE}; see {@link #isIgnoringDuplicates()} for how the caller has to treat these warnings.
+ */
+final class InsertStatement {
+  private final TableSchema schema;
+  private final String prefix;
+  private final String rowPlaceholders;
+  private final String suffix;
+  private final String sql;
+  private final String loadDataSql;
+  private final boolean ignoringDuplicates;
+  private volatile MultiRowSql lastMultiRow;
+
+  private InsertStatement(TableSchema schema, UpsertMode upsertMode, List<String> keyColumns) {
+    this.schema = schema;
+    List<String> updates = new ArrayList<>();
+    if (upsertMode == UpsertMode.UPDATE) {
+      Set<String> keys = new HashSet<>();
+      for (String keyColumn : keyColumns) {
+        keys.add(keyColumn.toLowerCase(Locale.ROOT));
+      }
+      for (String name : schema.getColumnNames()) {
+        if (!keys.contains(name.toLowerCase(Locale.ROOT))) {
+          updates.add(name + " = VALUES(" + name + ")");
+        }
+      }
+    }
+    boolean ignore =
+        upsertMode == UpsertMode.IGNORE || upsertMode == UpsertMode.UPDATE && updates.isEmpty();
+    this.prefix =
+        (ignore ? "INSERT IGNORE INTO " : "INSERT INTO ")
+            + schema.getTableName()
+            + " ("
+            + String.join(", ", schema.getColumnNames())
+            + ") VALUES ";
+    StringBuilder placeholders = new StringBuilder(3 * schema.getColumnCount() + 2).append('(');
+    for (int i = 0; i < schema.getColumnCount(); i++) {
+      placeholders.append(i == 0 ? "?" : ", ?");
+    }
+    this.rowPlaceholders = placeholders.append(')').toString();
+    this.suffix = updates.isEmpty() ? "" : " ON DUPLICATE KEY UPDATE " + String.join(", ", updates);
+    this.sql = prefix + rowPlaceholders + suffix;
+    this.ignoringDuplicates = ignore;
+    this.loadDataSql =
+        updates.isEmpty()
+            ? "LOAD DATA LOCAL INFILE 'solarreader.tsv' "
+                + (ignore ? "IGNORE " : "")
+                + "INTO TABLE "
+                + schema.getTableName()
+                + " CHARACTER SET utf8mb4 ("
+                + String.join(", ", schema.getColumnNames())
+                + ")"
+            : null;
+  }
+
+  /**
+   * Creates the statement for the given schema.
+   *
+   * @param schema the {@link TableSchema} of the target table
+   * @return the new {@code InsertStatement}
+   */
+  static InsertStatement of(TableSchema schema) {
+    return new InsertStatement(schema, UpsertMode.OFF, Collections.emptyList());
+  }
+
+  /**
+   * Creates the statement for the given schema with the handling of existing keys.
+   *
+   * @param schema the {@link TableSchema} of the target table
+   * @param upsertMode the {@link UpsertMode}
+   * @param keyColumns the columns of the natural key, which are not updated
+   * @return the new {@code InsertStatement}
+   */
+  static InsertStatement of(TableSchema schema, UpsertMode upsertMode, List<String> keyColumns) {
+    return new InsertStatement(schema, upsertMode, keyColumns);
+  }
+
+  /**
+   * Returns the schema this statement was built for.
+   *
+   * @return the {@link TableSchema}
+   */
+  TableSchema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Returns the number of parameters of one row.
+   *
+   * @return the parameter count per row
+   */
+  int getParameterCount() {
+    return schema.getColumnCount();
+  }
+
+  /**
+   * Returns the statement without value tuples, i.e. {@code INSERT INTO t (a, b) VALUES }.
+   *
+   * @return the statement prefix
+   */
+  String getPrefix() {
+    return prefix;
+  }
+
+  /**
+   * Returns the clause after the value tuples, i.e. {@code ON DUPLICATE KEY UPDATE ...}, or an
+   * empty string.
+   *
+   * @return the statement suffix
+   */
+  String getSuffix() {
+    return suffix;
+  }
+
+  /**
+   * Returns the single-row statement.
+   *
+   * @return the SQL with one placeholder tuple
+   */
+  String getSql() {
+    return sql;
+  }
+
+  /**
+   * Returns the statement with the given number of placeholder tuples.
+   *
+   * @param rowCount the number of rows
+   * @return the multi-row SQL
+   */
+  String getSql(int rowCount) {
+    if (rowCount == 1) {
+      return sql;
+    }
+    MultiRowSql cached = lastMultiRow;
+    if (cached != null && cached.rowCount == rowCount) {
+      return cached.sql;
+    }
+    StringBuilder builder =
+        new StringBuilder(
+            prefix.length() + rowCount * (rowPlaceholders.length() + 2) + suffix.length());
+    builder.append(prefix);
+    for (int i = 0; i < rowCount; i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+      builder.append(rowPlaceholders);
+    }
+    builder.append(suffix);
+    String multiRowSql = builder.toString();
+    lastMultiRow = new MultiRowSql(rowCount, multiRowSql);
+    return multiRowSql;
+  }
+
+  /**
+   * Returns the {@code LOAD DATA LOCAL INFILE} statement for rows in the format of {@link
+   * TableBatch#appendRowText(StringBuilder, int)}.
+   *
+   * @return the SQL of the bulk load, or {@code null} if existing rows must be updated, which
+   *     {@code LOAD DATA} cannot do
+   */
+  String getLoadDataSql() {
+    return loadDataSql;
+  }
+
+  /**
+   * Checks whether rows with an existing key are skipped. If not, a duplicate key must fail the
+   * write, also when {@code LOAD DATA LOCAL} only reports it as a warning.
+   *
+   * @return {@code true} with {@code INSERT IGNORE}
+   */
+  boolean isIgnoringDuplicates() {
+    return ignoringDuplicates;
+  }
+
+  private static final class MultiRowSql {
+    private final int rowCount;
+    private final String sql;
+
+    private MultiRowSql(int rowCount, String sql) {
+      this.rowCount = rowCount;
+      this.sql = sql;
+    }
+  }
+}
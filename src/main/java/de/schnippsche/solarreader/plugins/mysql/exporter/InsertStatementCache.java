@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the {@link InsertStatement} of every target table and column set.
+ *
+ * <p>The entries are keyed by {@link TableSchema}, i.e. by table name and ordered column names, so
+ * a table that is written with several column sets keeps one statement for each of them.
+ */
+final class InsertStatementCache {
+  private final Map<TableSchema, InsertStatement> statements = new ConcurrentHashMap<>();
+  private final UpsertMode upsertMode;
+  private final List<String> keyColumns;
+
+  /** Constructs a cache of plain {@code INSERT} statements. */
+  InsertStatementCache() {
+    this(UpsertMode.OFF, Collections.emptyList());
+  }
+
+  /**
+   * Constructs a cache of statements with the given handling of existing keys.
+   *
+   * @param upsertMode the {@link UpsertMode}
+   * @param keyColumns the columns of the natural key
+   */
+  InsertStatementCache(UpsertMode upsertMode, List<String> keyColumns) {
+    this.upsertMode = upsertMode;
+    this.keyColumns = keyColumns;
+  }
+
+  /**
+   * Returns the statement for the given schema, building it on first use.
+   *
+   * @param schema the {@link TableSchema} of the target table
+   * @return the matching {@link InsertStatement}
+   */
+  InsertStatement get(TableSchema schema) {
+    InsertStatement statement = statements.get(schema);
+    if (statement == null) {
+      statement =
+          statements.computeIfAbsent(
+              schema, key -> InsertStatement.of(key, upsertMode, keyColumns));
+    }
+    return statement;
+  }
+
+  /** Removes all cached statements. */
+  void clear() {
+    statements.clear();
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams the rows of a {@link TableBatch} as tab-separated UTF-8 text for {@code LOAD DATA LOCAL
+ * INFILE}.
+ *
+ * <p>The text is produced on demand in chunks while the driver sends it to the server, so neither
+ * a temporary file nor the text of the whole batch is needed.
+ */
+final class LoadDataStream extends InputStream {
+  private static final int CHUNK_SIZE = 64 * 1024;
+  private final TableBatch batch;
+  private final StringBuilder text = new StringBuilder(CHUNK_SIZE + 1024);
+  private byte[] chunk = new byte[0];
+  private int position;
+  private int row;
+
+  /**
+   * Constructs a new {@code LoadDataStream}.
+   *
+   * @param batch the {@link TableBatch} to stream
+   */
+  LoadDataStream(TableBatch batch) {
+    this.batch = batch;
+  }
+
+  @Override
+  public int read() {
+    if (!fill()) {
+      return -1;
+    }
+    return chunk[position++] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) {
+    if (length == 0) {
+      return 0;
+    }
+    if (!fill()) {
+      return -1;
+    }
+    int count = Math.min(length, chunk.length - position);
+    System.arraycopy(chunk, position, buffer, offset, count);
+    position += count;
+    return count;
+  }
+
+  @Override
+  public int available() {
+    return chunk.length - position;
+  }
+
+  private boolean fill() {
+    if (position < chunk.length) {
+      return true;
+    }
+    if (row >= batch.getRowCount()) {
+      return false;
+    }
+    text.setLength(0);
+    while (row < batch.getRowCount() && text.length() < CHUNK_SIZE) {
+      batch.appendRowText(text, row++);
+    }
+    chunk = text.toString().getBytes(StandardCharsets.UTF_8);
+    position = 0;
+    return true;
+  }
+}
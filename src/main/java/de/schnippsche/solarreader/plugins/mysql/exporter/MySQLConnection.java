@@ -25,6 +25,7 @@ import de.schnippsche.solarreader.backend.connection.general.Connection;
 import de.schnippsche.solarreader.backend.table.Table;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.List;
 
 /**
  * Represents a specialized {@link Connection} interface for interactions with a MySQL database.
@@ -36,7 +37,7 @@ import java.sql.SQLException;
  *
  * @see Connection
  */
-public interface MySQLConnection extends Connection {
+public interface MySQLConnection extends Connection, AutoCloseable {
 
   /**
    * Writes the contents of a {@link Table} to the database.
@@ -49,6 +50,17 @@ public interface MySQLConnection extends Connection {
    */
   void writeTable(Table table) throws IOException;
 
+  /**
+   * Writes several {@link TableBatch} objects to the database as one unit.
+   *
+   * <p>Implementations should write all batches over the same database connection and commit them
+   * in a single transaction.
+   *
+   * @param batches the {@link TableBatch} objects to be written
+   * @throws IOException if an I/O error occurs during the write operation
+   */
+  void writeBatches(List<TableBatch> batches) throws IOException;
+
   /**
    * Retrieves the version information of the connected MySQL database.
    *
@@ -60,4 +72,32 @@ public interface MySQLConnection extends Connection {
    *     retrieved
    */
   String getDatabaseVersion() throws SQLException;
+
+  /**
+   * Performs the periodic maintenance of the target tables, such as adding and dropping
+   * partitions.
+   *
+   * <p>The default implementation does nothing.
+   *
+   * @throws IOException if the maintenance fails
+   */
+  default void maintain() throws IOException {}
+
+  /**
+   * Sets the {@link ExportMetrics} that receive the connection and write timings and the errors of
+   * this connection.
+   *
+   * <p>The default implementation does nothing.
+   *
+   * @param metrics the {@link ExportMetrics} to update
+   */
+  default void setMetrics(ExportMetrics metrics) {}
+
+  /**
+   * Releases all resources held by this connection, such as pooled database connections.
+   *
+   * <p>The default implementation does nothing.
+   */
+  @Override
+  default void close() {}
 }
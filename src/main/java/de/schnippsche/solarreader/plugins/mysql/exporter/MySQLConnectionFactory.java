@@ -40,7 +40,9 @@ public class MySQLConnectionFactory implements ConnectionFactory<MySQLConnection
   /**
    * Creates a new {@link MySQLConnection} instance using the provided {@link Setting}.
    *
-   * <p>This method initializes a {@link SimpleMySQLConnection} with the specified settings.
+   * <p>This method initializes a {@link SimpleMySQLConnection} with the specified settings. The
+   * returned connection owns its own connection pool, so it should be created once per {@link
+   * Setting} and closed with {@link MySQLConnection#close()} when it is no longer needed.
    *
    * @param setting the {@link Setting} object containing configuration details for the connection
    * @return a new {@link MySQLConnection} instance
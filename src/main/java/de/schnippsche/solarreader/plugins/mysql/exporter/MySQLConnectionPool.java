@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.tinylog.Logger;
+
+/**
+ * A small, bounded pool of long-lived JDBC connections.
+ *
+ * <p>Opening a connection to MySQL or MariaDB requires a TCP handshake, optional TLS, the
+ * authentication and the session setup. Doing this for every exported table dominates the export
+ * latency, so {@link SimpleMySQLConnection} keeps its connections in this pool instead.
+ *
+ * <p>The pool provides:
+ *
+ * <ul>
+ *   <li>an upper bound for the number of open connections,
+ *   <li>validation of idle connections before they are handed out,
+ *   <li>eviction of connections that have been idle for too long,
+ *   <li>a maximum lifetime after which a connection is replaced,
+ *   <li>a per-connection LRU cache of prepared statements.
+ * </ul>
+ *
+ * <p>Idle connections are reused in LIFO order, so the most recently used (and therefore warm)
+ * connection is handed out first while rarely used connections age out.
+ */
+final class MySQLConnectionPool implements AutoCloseable {
+  private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+  private final ConnectionSupplier connectionSupplier;
+  private final int maxSize;
+  private final long idleTimeoutMillis;
+  private final long maxLifetimeMillis;
+  private final long borrowTimeoutMillis;
+  private final int statementCacheSize;
+  private final Deque<PooledConnection> idleConnections;
+  private final Semaphore permits;
+  private volatile boolean closed;
+
+  /**
+   * Constructs a new {@code MySQLConnectionPool}.
+   *
+   * @param connectionSupplier the supplier used to open new physical connections
+   * @param maxSize the maximum number of open connections
+   * @param idleTimeoutMillis the time after which an unused connection is closed
+   * @param maxLifetimeMillis the maximum lifetime of a connection
+   * @param borrowTimeoutMillis the maximum time to wait for a free connection
+   * @param statementCacheSize the maximum number of prepared statements kept open per connection
+   */
+  MySQLConnectionPool(
+      ConnectionSupplier connectionSupplier,
+      int maxSize,
+      long idleTimeoutMillis,
+      long maxLifetimeMillis,
+      long borrowTimeoutMillis,
+      int statementCacheSize) {
+    this.connectionSupplier = connectionSupplier;
+    this.maxSize = Math.max(1, maxSize);
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    this.maxLifetimeMillis = maxLifetimeMillis;
+    this.borrowTimeoutMillis = borrowTimeoutMillis;
+    this.statementCacheSize = Math.max(1, statementCacheSize);
+    this.idleConnections = new ArrayDeque<>();
+    this.permits = new Semaphore(this.maxSize, true);
+  }
+
+  /**
+   * Borrows a connection from the pool.
+   *
+   * <p>An idle connection is validated before it is returned; expired or invalid connections are
+   * closed and replaced. If no idle connection is available and the pool limit is not reached, a
+   * new connection is opened. Every borrowed connection must be given back with {@link
+   * #release(PooledConnection, boolean)}.
+   *
+   * @return a {@link PooledConnection} ready for use
+   * @throws SQLException if the pool is closed, no connection becomes available in time or a new
+   *     connection cannot be established
+   */
+  PooledConnection borrow() throws SQLException {
+    if (closed) {
+      throw new SQLException("connection pool is closed");
+    }
+    acquirePermit();
+    try {
+      PooledConnection pooledConnection;
+      while ((pooledConnection = pollIdle()) != null) {
+        if (isUsable(pooledConnection, System.currentTimeMillis())) {
+          return pooledConnection;
+        }
+        pooledConnection.closeQuietly();
+      }
+      return new PooledConnection(connectionSupplier.get(), statementCacheSize);
+    } catch (SQLException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns a borrowed connection to the pool.
+   *
+   * @param pooledConnection the connection to return
+   * @param broken {@code true} if the connection must not be reused, e.g. after a communication
+   *     error
+   */
+  void release(PooledConnection pooledConnection, boolean broken) {
+    try {
+      long now = System.currentTimeMillis();
+      if (closed || broken || isExpired(pooledConnection, now)) {
+        pooledConnection.closeQuietly();
+        return;
+      }
+      pooledConnection.lastUsed = now;
+      synchronized (idleConnections) {
+        idleConnections.push(pooledConnection);
+      }
+      evictIdle(now);
+    } finally {
+      permits.release();
+    }
+  }
+
+  /**
+   * Closes all idle connections and marks the pool as closed. Connections that are currently
+   * borrowed are closed as soon as they are released.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    synchronized (idleConnections) {
+      idleConnections.forEach(PooledConnection::closeQuietly);
+      idleConnections.clear();
+    }
+    Logger.debug("connection pool closed");
+  }
+
+  private void acquirePermit() throws SQLException {
+    try {
+      if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+        throw new SQLException(
+            "timeout waiting for a free connection, pool size is " + maxSize, "08001");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("interrupted while waiting for a free connection", "08001", e);
+    }
+  }
+
+  private PooledConnection pollIdle() {
+    synchronized (idleConnections) {
+      return idleConnections.pollFirst();
+    }
+  }
+
+  private void evictIdle(long now) {
+    synchronized (idleConnections) {
+      Iterator<PooledConnection> iterator = idleConnections.descendingIterator();
+      while (iterator.hasNext()) {
+        PooledConnection pooledConnection = iterator.next();
+        if (now - pooledConnection.lastUsed < idleTimeoutMillis
+            && !isExpired(pooledConnection, now)) {
+          // older entries are at the tail, the remaining ones are younger
+          break;
+        }
+        iterator.remove();
+        pooledConnection.closeQuietly();
+        Logger.debug("evict idle connection");
+      }
+    }
+  }
+
+  private boolean isUsable(PooledConnection pooledConnection, long now) {
+    if (isExpired(pooledConnection, now) || now - pooledConnection.lastUsed >= idleTimeoutMillis) {
+      return false;
+    }
+    try {
+      return pooledConnection.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+    } catch (SQLException e) {
+      Logger.debug("connection validation failed: {}", e.getMessage());
+      return false;
+    }
+  }
+
+  private boolean isExpired(PooledConnection pooledConnection, long now) {
+    return now - pooledConnection.created >= maxLifetimeMillis;
+  }
+
+  /** Opens a new physical database connection. */
+  @FunctionalInterface
+  interface ConnectionSupplier {
+    /**
+     * Opens a new connection.
+     *
+     * @return the new {@link Connection}
+     * @throws SQLException if the connection cannot be established
+     */
+    Connection get() throws SQLException;
+  }
+
+  /**
+   * A physical connection together with the bookkeeping data needed by the pool.
+   *
+   * <p>Prepared statements obtained with {@link #prepareStatement(String)} stay open while the
+   * connection lives, so a recurring insert is prepared on the server only once. The statements are
+   * kept in access order and the least recently used one is closed when the cache is full. A
+   * pooled connection is used by one thread at a time, so the cache needs no synchronization.
+   */
+  static final class PooledConnection {
+    private final Connection connection;
+    private final long created;
+    private final Map<String, PreparedStatement> statements;
+    private long lastUsed;
+
+    private PooledConnection(Connection connection, int statementCacheSize) {
+      this.connection = connection;
+      this.created = System.currentTimeMillis();
+      this.lastUsed = created;
+      this.statements =
+          new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+              if (size() <= statementCacheSize) {
+                return false;
+              }
+              closeStatement(eldest.getValue());
+              return true;
+            }
+          };
+    }
+
+    /**
+     * Returns the underlying JDBC connection.
+     *
+     * @return the {@link Connection}
+     */
+    Connection getConnection() {
+      return connection;
+    }
+
+    /**
+     * Returns a prepared statement for the given SQL, reusing a cached one if available.
+     *
+     * <p>The returned statement belongs to the cache and must not be closed by the caller. Its
+     * parameters and batch are cleared before it is handed out again.
+     *
+     * @param sql the SQL of the statement
+     * @return the {@link PreparedStatement}
+     * @throws SQLException if the statement cannot be prepared
+     */
+    PreparedStatement prepareStatement(String sql) throws SQLException {
+      PreparedStatement statement = statements.get(sql);
+      if (statement != null) {
+        statement.clearParameters();
+        statement.clearBatch();
+        return statement;
+      }
+      statement = connection.prepareStatement(sql);
+      statements.put(sql, statement);
+      return statement;
+    }
+
+    /**
+     * Closes all cached prepared statements, e.g. after a failed write left them in an unknown
+     * state.
+     */
+    void clearStatements() {
+      statements.values().forEach(PooledConnection::closeStatement);
+      statements.clear();
+    }
+
+    private static void closeStatement(PreparedStatement statement) {
+      try {
+        statement.close();
+      } catch (SQLException e) {
+        Logger.debug("error closing statement: {}", e.getMessage());
+      }
+    }
+
+    private void closeQuietly() {
+      clearStatements();
+      try {
+        connection.close();
+      } catch (SQLException e) {
+        Logger.debug("error closing connection: {}", e.getMessage());
+      }
+    }
+  }
+}
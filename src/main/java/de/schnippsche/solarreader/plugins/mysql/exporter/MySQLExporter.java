@@ -28,13 +28,40 @@ import de.schnippsche.solarreader.backend.table.Table;
 import de.schnippsche.solarreader.backend.util.Setting;
 import de.schnippsche.solarreader.frontend.ui.*;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
 import java.text.MessageFormat;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.ResourceBundle;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import org.tinylog.Logger;
 
 /**
@@ -45,11 +72,76 @@ import org.tinylog.Logger;
 public class MySQLExporter extends AbstractExporter {
   private static final String DBNAME = "dbname";
   private static final String REQUIRED_ERROR = "mysql.exporter.required.error";
-  private final BlockingQueue<TransferData> queue;
+  private static final String BATCH_SIZE = "batchsize";
+  private static final String BATCH_WAIT = "batchwait";
+  private static final int DEFAULT_BATCH_SIZE = 100;
+  private static final int DEFAULT_BATCH_WAIT_MILLIS = 250;
+  private static final String QUEUE_SIZE = "queuesize";
+  private static final String QUEUE_MEMORY = "queuememory";
+  private static final String OVERFLOW_POLICY = "overflowpolicy";
+  private static final String QUEUE_STORAGE = "queuestorage";
+  private static final int DEFAULT_QUEUE_SIZE = 10000;
+  private static final int DEFAULT_QUEUE_MEMORY_MB = 32;
+  private static final long BLOCK_TIMEOUT_SECONDS = 60;
+  private static final String SPOOL = "spool";
+  private static final String SPOOL_DIR = "spooldir";
+  private static final String DEFAULT_SPOOL_DIR = "";
+  private static final Path DEFAULT_SPOOL_BASE =
+      Paths.get(System.getProperty("user.home"), ".solarreader", "spool");
+  private static final long SPOOL_SEGMENT_SIZE = 4L * 1024L * 1024L;
+  private static final long SPOOL_POLL_MILLIS = 1000;
+  private static final int REPLAY_INTERVAL_ROUNDS = 4;
+  private static final int BREAKER_THRESHOLD = 3;
+  private static final int MAX_EXPORT_ATTEMPTS = 3;
+  private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+  private static final long RETRY_BASE_DELAY_MILLIS = 1000;
+  private static final long RETRY_MAX_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(5);
+  private static final String WRITERS = "writers";
+  private static final int DEFAULT_WRITERS = 1;
+  private static final String THREAD_MODE = "threadmode";
+  private static final String DRAIN_TIMEOUT = "draintimeout";
+  private static final String HEARTBEAT = "heartbeat";
+  private static final String DEADBAND = "deadband";
+  private static final String DEADBAND_COLUMNS = "deadbandcolumns";
+  private static final String AGGREGATES = "aggregates";
+  private static final long MAINTENANCE_INTERVAL_NANOS = TimeUnit.HOURS.toNanos(1);
+  private static final int DEFAULT_DRAIN_TIMEOUT_SECONDS = 10;
+  private static final long DRAIN_GRACE_MILLIS = TimeUnit.SECONDS.toMillis(5);
+  private final ExportQueue<PendingExport> queue;
+  private volatile OffHeapRing offHeapRing;
   private final ConnectionFactory<MySQLConnection> connectionFactory;
-  private MySQLConnection connection;
+  private volatile MySQLConnection connection;
   private Thread consumerThread;
   private volatile boolean running;
+  private volatile boolean accepting = true;
+  private volatile CountDownLatch stopSignal = new CountDownLatch(1);
+  private volatile long drainTimeoutMillis =
+      TimeUnit.SECONDS.toMillis(DEFAULT_DRAIN_TIMEOUT_SECONDS);
+  private volatile long drainDeadline;
+  private volatile DeadbandFilter deadbandFilter;
+  private volatile BucketAggregator bucketAggregator;
+  private String aggregatesConfiguration;
+  private List<Object> deadbandConfiguration;
+  private long nextMaintenanceNanos = System.nanoTime();
+  private volatile int batchSize = DEFAULT_BATCH_SIZE;
+  private volatile long batchWaitMillis = DEFAULT_BATCH_WAIT_MILLIS;
+  private volatile SpoolMode spoolMode = SpoolMode.OVERFLOW;
+  private volatile String spoolDirectory = DEFAULT_SPOOL_DIR;
+  private volatile ExportSpool spool;
+  private volatile int writerCount = DEFAULT_WRITERS;
+  private ExecutorService writerPool;
+  private int writerPoolSize;
+  private ThreadMode writerPoolMode;
+  private volatile ThreadMode threadMode = ThreadMode.PLATFORM;
+  private final CircuitBreaker circuitBreaker =
+      new CircuitBreaker(BREAKER_THRESHOLD, RETRY_BASE_DELAY_MILLIS, RETRY_MAX_DELAY_MILLIS);
+  private final List<PendingExport> retryExports = new ArrayList<>();
+  private final Map<Long, CompletableFuture<Void>> spooledCompletions = new ConcurrentHashMap<>();
+  private final Map<Long, Integer> spooledAttempts = new ConcurrentHashMap<>();
+  private final Set<CompletableFuture<Void>> openCompletions = ConcurrentHashMap.newKeySet();
+  private final ReplayPacer replayPacer = new ReplayPacer(REPLAY_INTERVAL_ROUNDS);
+  private final ExportMetrics metrics;
+  private ObjectName metricsName;
 
   /**
    * Constructs a new {@code MySQLExporter} with a default {@link MySQLConnectionFactory}.
@@ -66,7 +158,16 @@ public class MySQLExporter extends AbstractExporter {
   public MySQLExporter(ConnectionFactory<MySQLConnection> connectionFactory) {
     super();
     this.connectionFactory = connectionFactory;
-    this.queue = new LinkedBlockingQueue<>();
+    this.queue =
+        new ExportQueue<>(
+            DEFAULT_QUEUE_SIZE,
+            DEFAULT_QUEUE_MEMORY_MB * 1024L * 1024L,
+            OverflowPolicy.SPILL,
+            PendingExport::getEstimatedSize,
+            this::discard,
+            export -> export.moveTo(offHeapRing),
+            MySQLExporter::restoreQueued);
+    this.metrics = new ExportMetrics(queue);
   }
 
   @Override
@@ -77,41 +178,188 @@ public class MySQLExporter extends AbstractExporter {
   @Override
   public void initialize() {
     Logger.debug("initialize mysql exporter");
+    if (connection == null && exporterData != null) {
+      updateConfiguration();
+    }
+    openSpool();
+    registerMetrics();
+    stopSignal = new CountDownLatch(1);
     running = true;
-    consumerThread = new Thread(this::processQueue, "mySQLExporterThread");
+    accepting = true;
+    consumerThread =
+        threadMode.newThreadFactory("mySQLExporterThread", false).newThread(this::processQueue);
     consumerThread.start();
   }
 
+  /**
+   * Stops the exporter gracefully.
+   *
+   * <p>New exports are no longer queued but spilled to the spool. The consumer finishes the running
+   * round and then writes the remaining queue in coalesced batches until the drain timeout has
+   * passed. Exports that are still not written afterwards, e.g. because the database is
+   * unreachable, are spilled to the spool and replayed after the next start. Only if the consumer
+   * does not finish within a grace period after the timeout is it interrupted.
+   */
   @Override
   public void shutdown() {
+    accepting = false;
+    drainDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMillis);
     running = false;
+    stopSignal.countDown();
     if (consumerThread != null && consumerThread.isAlive()) {
-      consumerThread.interrupt();
       try {
-        consumerThread.join();
+        consumerThread.join(drainTimeoutMillis + DRAIN_GRACE_MILLIS);
+        if (consumerThread.isAlive()) {
+          Logger.warn("drain of mysql exporter timed out, interrupt consumer");
+          consumerThread.interrupt();
+          consumerThread.join();
+        }
       } catch (InterruptedException e) {
         Logger.warn("shutdown mysql exporter interrupted");
         Thread.currentThread().interrupt();
       }
     }
+    closeWriterPool();
+    spillRemaining();
+    closeConnection();
+    closeSpool();
+    failSpooledCompletions();
+    unregisterMetrics();
     Logger.debug("shutdown mysql exporter finished");
   }
 
+  /**
+   * Adds a {@link TransferData} to the export queue.
+   *
+   * <p>The tables are converted into {@link TableBatch} objects right away. With {@link
+   * SpoolMode#JOURNAL} the export is appended to the spool before it is queued. If the queue is
+   * full, the configured {@link OverflowPolicy} decides whether the export waits, is dropped or is
+   * spilled to the spool.
+   *
+   * @param transferData the {@link TransferData} to export
+   */
   @Override
   public void addExport(TransferData transferData) {
+    enqueue(transferData, BLOCK_TIMEOUT_SECONDS);
+  }
+
+  /**
+   * Adds a {@link TransferData} to the export queue without waiting and returns a future that is
+   * completed when all of its tables are committed.
+   *
+   * <p>If the queue is full, the export is handled by the {@link OverflowPolicy} like in {@link
+   * #addExport(TransferData)}, except that {@link OverflowPolicy#BLOCK} does not wait and drops the
+   * export. Callers that want back-pressure wait for the future of the previous export instead.
+   *
+   * <p>An export that is spilled to the spool completes when it is committed after the replay. The
+   * future completes exceptionally with an {@link IOException} if the export is dropped, cannot be
+   * kept without a spool, or is still in the spool when the exporter shuts down.
+   *
+   * @param transferData the {@link TransferData} to export
+   * @return a future completed on commit
+   */
+  public CompletableFuture<Void> addExportAsync(TransferData transferData) {
+    return enqueue(transferData, 0);
+  }
+
+  /**
+   * Waits until every export added so far has been committed or has failed.
+   *
+   * @param timeout the maximum time to wait
+   * @param unit the unit of {@code timeout}
+   * @return {@code true} if all exports were completed, {@code false} if the time elapsed
+   * @throws InterruptedException if the caller is interrupted while waiting
+   */
+  public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+    CompletableFuture<?>[] open = openCompletions.toArray(new CompletableFuture<?>[0]);
+    try {
+      CompletableFuture.allOf(open).get(timeout, unit);
+    } catch (ExecutionException e) {
+      Logger.debug("flush finished with failed export(s): {}", e.getCause().getMessage());
+    } catch (TimeoutException e) {
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Converts a {@link TransferData} into a {@link PendingExport} and adds it to the queue.
+   *
+   * @param transferData the {@link TransferData} to export
+   * @param timeoutSeconds the maximum time to wait with {@link OverflowPolicy#BLOCK}
+   * @return the completion future of the export
+   */
+  private CompletableFuture<Void> enqueue(TransferData transferData, long timeoutSeconds) {
     if (transferData.getTables().isEmpty()) {
       Logger.debug("no exporting tables, skip export");
-      return;
+      return CompletableFuture.completedFuture(null);
     }
     Logger.debug("add export to '{}'", exporterData.getName());
     exporterData.setLastCall(transferData.getTimestamp());
-    queue.add(transferData);
+    DeadbandFilter filter = deadbandFilter;
+    DeadbandFilter.Undo undo = new DeadbandFilter.Undo();
+    List<TableBatch> batches = toBatches(transferData, filter, undo);
+    if (batches.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    PendingExport export = new PendingExport(batches, PendingExport.NOT_SPOOLED);
+    CompletableFuture<Void> completion = export.getCompletion();
+    openCompletions.add(completion);
+    completion.whenComplete(
+        (result, error) -> {
+          openCompletions.remove(completion);
+          if (error != null && filter != null) {
+            // the rows were not written, so they must not count as the last exported values
+            filter.rollback(undo);
+          }
+        });
+    if (!accepting) {
+      Logger.debug("exporter '{}' stopped, spill export", exporterData.getName());
+      spill(export);
+      return completion;
+    }
+    ExportSpool currentSpool = spool;
+    if (spoolMode == SpoolMode.JOURNAL && currentSpool != null) {
+      try {
+        export.setSpoolId(currentSpool.append(batches, true));
+      } catch (IOException e) {
+        Logger.error("cannot append export to spool: {}", e.getMessage());
+      }
+    }
+    try {
+      boolean queued = queue.offer(export, timeoutSeconds, TimeUnit.SECONDS);
+      if (queued) {
+        metrics.recordQueued();
+      } else if (queue.getPolicy() == OverflowPolicy.SPILL) {
+        spill(export);
+      } else {
+        discard(export);
+        Logger.warn(
+            "export queue of '{}' full, export dropped (dropped newest: {}, dropped oldest: {})",
+            exporterData.getName(),
+            queue.getDroppedNewestCount(),
+            queue.getDroppedOldestCount());
+      }
+    } catch (InterruptedException e) {
+      Logger.warn("add export interrupted, export spilled");
+      spill(export);
+      Thread.currentThread().interrupt();
+    }
+    return completion;
+  }
+
+  /**
+   * Returns the metrics of the export pipeline.
+   *
+   * @return the {@link ExportMetrics} of this exporter
+   */
+  public ExportMetrics getMetrics() {
+    return metrics;
   }
 
   @Override
   public String testExporterConnection(Setting setting) throws IOException {
-    try {
-      MySQLConnection testConnection = connectionFactory.createConnection(setting);
+    try (MySQLConnection testConnection = connectionFactory.createConnection(setting)) {
       String message = resourceBundle.getString("mysql.exporter.connection.successful");
       String version = testConnection.getDatabaseVersion();
       Logger.info("connection successful to {}", version);
@@ -182,6 +430,306 @@ public class MySQLExporter extends AbstractExporter {
             .withPlaceholder(resourceBundle.getString("mysql.exporter.name.text"))
             .withInvalidFeedback(resourceBundle.getString(REQUIRED_ERROR))
             .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(SimpleMySQLConnection.POOL_SIZE)
+            .withType(HtmlInputType.NUMBER)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.poolsize.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.poolsize.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.poolsize.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(SimpleMySQLConnection.WRITE_MODE)
+            .withType(HtmlInputType.TEXT)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.writemode.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.writemode.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.writemode.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(SimpleMySQLConnection.STATEMENT_CACHE_SIZE)
+            .withType(HtmlInputType.NUMBER)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.statementcache.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.statementcache.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.statementcache.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(SimpleMySQLConnection.AUTO_CREATE)
+            .withType(HtmlInputType.TEXT)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.autocreate.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.autocreate.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.autocreate.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(SimpleMySQLConnection.LOAD_DATA_THRESHOLD)
+            .withType(HtmlInputType.NUMBER)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.loaddatathreshold.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.loaddatathreshold.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.loaddatathreshold.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(SimpleMySQLConnection.PARTITIONING)
+            .withType(HtmlInputType.TEXT)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.partitioning.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.partitioning.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.partitioning.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(SimpleMySQLConnection.RETENTION)
+            .withType(HtmlInputType.NUMBER)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.retention.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.retention.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.retention.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(SimpleMySQLConnection.UPSERT)
+            .withType(HtmlInputType.TEXT)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.upsert.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.upsert.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.upsert.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(SimpleMySQLConnection.UPSERT_KEY)
+            .withType(HtmlInputType.TEXT)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.upsertkey.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.upsertkey.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.upsertkey.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(SimpleMySQLConnection.UNIQUE_INDEX)
+            .withType(HtmlInputType.TEXT)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.uniqueindex.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.uniqueindex.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.uniqueindex.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(SimpleMySQLConnection.COMPRESSION)
+            .withType(HtmlInputType.TEXT)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.compression.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.compression.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.compression.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(SimpleMySQLConnection.SSL_MODE)
+            .withType(HtmlInputType.TEXT)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.sslmode.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.sslmode.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.sslmode.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(SimpleMySQLConnection.CONNECT_TIMEOUT)
+            .withType(HtmlInputType.NUMBER)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.connecttimeout.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.connecttimeout.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.connecttimeout.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(SimpleMySQLConnection.SOCKET_TIMEOUT)
+            .withType(HtmlInputType.NUMBER)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.sockettimeout.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.sockettimeout.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.sockettimeout.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(SimpleMySQLConnection.URL_PROPERTIES)
+            .withType(HtmlInputType.TEXT)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.urlproperties.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.urlproperties.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.urlproperties.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(WRITERS)
+            .withType(HtmlInputType.NUMBER)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.writers.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.writers.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.writers.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(THREAD_MODE)
+            .withType(HtmlInputType.TEXT)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.threadmode.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.threadmode.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.threadmode.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(HEARTBEAT)
+            .withType(HtmlInputType.NUMBER)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.heartbeat.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.heartbeat.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.heartbeat.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(DEADBAND)
+            .withType(HtmlInputType.TEXT)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.deadband.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.deadband.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.deadband.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(DEADBAND_COLUMNS)
+            .withType(HtmlInputType.TEXT)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.deadbandcolumns.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.deadbandcolumns.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.deadbandcolumns.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(AGGREGATES)
+            .withType(HtmlInputType.TEXT)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.aggregates.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.aggregates.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.aggregates.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(DRAIN_TIMEOUT)
+            .withType(HtmlInputType.NUMBER)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.draintimeout.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.draintimeout.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.draintimeout.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(BATCH_SIZE)
+            .withType(HtmlInputType.NUMBER)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.batchsize.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.batchsize.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.batchsize.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(BATCH_WAIT)
+            .withType(HtmlInputType.NUMBER)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.batchwait.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.batchwait.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.batchwait.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(QUEUE_SIZE)
+            .withType(HtmlInputType.NUMBER)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.queuesize.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.queuesize.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.queuesize.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(QUEUE_MEMORY)
+            .withType(HtmlInputType.NUMBER)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.queuememory.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.queuememory.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.queuememory.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(OVERFLOW_POLICY)
+            .withType(HtmlInputType.TEXT)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.overflowpolicy.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.overflowpolicy.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.overflowpolicy.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(QUEUE_STORAGE)
+            .withType(HtmlInputType.TEXT)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.queuestorage.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.queuestorage.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.queuestorage.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(SPOOL)
+            .withType(HtmlInputType.TEXT)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.spool.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.spool.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.spool.text"))
+            .build());
+    uiList.addElement(
+        new UIInputElementBuilder()
+            .withName(SPOOL_DIR)
+            .withType(HtmlInputType.TEXT)
+            .withColumnWidth(HtmlWidth.HALF)
+            .withRequired(false)
+            .withTooltip(resourceBundle.getString("mysql.exporter.spooldir.tooltip"))
+            .withLabel(resourceBundle.getString("mysql.exporter.spooldir.text"))
+            .withPlaceholder(resourceBundle.getString("mysql.exporter.spooldir.text"))
+            .build());
     return Optional.of(uiList);
   }
 
@@ -193,21 +741,795 @@ public class MySQLExporter extends AbstractExporter {
     setting.setOptionalUser("root");
     setting.setOptionalPassword("root");
     setting.setConfigurationValue(DBNAME, "solarreader");
+    setting.setConfigurationValue(
+        SimpleMySQLConnection.POOL_SIZE, String.valueOf(SimpleMySQLConnection.DEFAULT_POOL_SIZE));
+    setting.setConfigurationValue(SimpleMySQLConnection.WRITE_MODE, "batch");
+    setting.setConfigurationValue(
+        SimpleMySQLConnection.STATEMENT_CACHE_SIZE,
+        String.valueOf(SimpleMySQLConnection.DEFAULT_STATEMENT_CACHE_SIZE));
+    setting.setConfigurationValue(SimpleMySQLConnection.AUTO_CREATE, "false");
+    setting.setConfigurationValue(
+        SimpleMySQLConnection.LOAD_DATA_THRESHOLD,
+        String.valueOf(SimpleMySQLConnection.DEFAULT_LOAD_DATA_THRESHOLD));
+    setting.setConfigurationValue(SimpleMySQLConnection.PARTITIONING, "off");
+    setting.setConfigurationValue(SimpleMySQLConnection.RETENTION, "0");
+    setting.setConfigurationValue(SimpleMySQLConnection.UPSERT, "off");
+    setting.setConfigurationValue(SimpleMySQLConnection.UPSERT_KEY, "");
+    setting.setConfigurationValue(SimpleMySQLConnection.UNIQUE_INDEX, "false");
+    setting.setConfigurationValue(SimpleMySQLConnection.COMPRESSION, "false");
+    setting.setConfigurationValue(SimpleMySQLConnection.SSL_MODE, "disable");
+    setting.setConfigurationValue(
+        SimpleMySQLConnection.CONNECT_TIMEOUT,
+        String.valueOf(SimpleMySQLConnection.DEFAULT_CONNECT_TIMEOUT_SECONDS));
+    setting.setConfigurationValue(SimpleMySQLConnection.SOCKET_TIMEOUT, "0");
+    setting.setConfigurationValue(SimpleMySQLConnection.URL_PROPERTIES, "");
+    setting.setConfigurationValue(WRITERS, String.valueOf(DEFAULT_WRITERS));
+    setting.setConfigurationValue(THREAD_MODE, "platform");
+    setting.setConfigurationValue(HEARTBEAT, "0");
+    setting.setConfigurationValue(DEADBAND, "0");
+    setting.setConfigurationValue(DEADBAND_COLUMNS, "");
+    setting.setConfigurationValue(AGGREGATES, "");
+    setting.setConfigurationValue(DRAIN_TIMEOUT, String.valueOf(DEFAULT_DRAIN_TIMEOUT_SECONDS));
+    setting.setConfigurationValue(BATCH_SIZE, String.valueOf(DEFAULT_BATCH_SIZE));
+    setting.setConfigurationValue(BATCH_WAIT, String.valueOf(DEFAULT_BATCH_WAIT_MILLIS));
+    setting.setConfigurationValue(QUEUE_SIZE, String.valueOf(DEFAULT_QUEUE_SIZE));
+    setting.setConfigurationValue(QUEUE_MEMORY, String.valueOf(DEFAULT_QUEUE_MEMORY_MB));
+    setting.setConfigurationValue(OVERFLOW_POLICY, "spill");
+    setting.setConfigurationValue(QUEUE_STORAGE, "heap");
+    setting.setConfigurationValue(SPOOL, "overflow");
+    setting.setConfigurationValue(SPOOL_DIR, DEFAULT_SPOOL_DIR);
     return setting;
   }
 
   /**
-   * Processes the export queue by taking each entry and exporting it.
+   * Processes the export queue.
+   *
+   * <p>The consumer waits for the first entry, then collects further entries until either {@link
+   * #BATCH_SIZE} entries are gathered or {@link #BATCH_WAIT} milliseconds have passed. The
+   * collected entries are exported together, so a backlog is written in a few large batches
+   * instead of one round trip per entry. Exports stored in the spool are replayed together with
+   * the queued entries whenever the {@link ReplayPacer} decides so, i.e. while the queue holds less
+   * than one batch and at least every {@link #REPLAY_INTERVAL_ROUNDS} rounds while it is busy.
+   *
+   * <p>Exports that failed because the database was unreachable or busy are retried before new
+   * entries are taken, after a jittered exponential backoff of the {@link CircuitBreaker}. Exports
+   * the database rejected are retried as soon as their own backoff has passed. Once the breaker is
+   * open, a single probe connection checks the database before the next write, so a backlog does
+   * not pay the connect timeout for every entry.
+   *
+   * <p>The consumer is not interrupted on shutdown; it notices the stop within one poll interval
+   * or when the backoff is cut short, and then drains the queue.
    */
   private void processQueue() {
     while (running) {
       try {
-        TransferData transferData = queue.take();
-        doStandardExport(transferData);
+        long delay = circuitBreaker.getDelayMillis();
+        if (delay > 0) {
+          stopSignal.await(delay, TimeUnit.MILLISECONDS);
+          continue;
+        }
+        if (circuitBreaker.isOpen() && !probe()) {
+          continue;
+        }
+        try {
+          maintainIfDue();
+        } catch (RuntimeException e) {
+          Logger.error(e, "maintenance of '{}' failed", exporterData.getName());
+        }
+        List<PendingExport> pending = takeDueRetries(Integer.MAX_VALUE);
+        if (pending.isEmpty()) {
+          pending = nextExports();
+        }
+        if (!pending.isEmpty()) {
+          try {
+            exportPending(pending);
+          } catch (RuntimeException e) {
+            // keep the consumer alive, the exports that are not finished yet are replayed
+            Logger.error(e, "export to '{}' failed", exporterData.getName());
+            for (PendingExport export : pending) {
+              if (!export.getCompletion().isDone()) {
+                spill(export);
+              }
+            }
+          }
+        }
       } catch (InterruptedException e) {
         Thread.currentThread().interrupt();
+        return;
+      }
+    }
+    drain();
+  }
+
+  /**
+   * Writes the exports left in the retry list and the queue after the exporter was stopped, in
+   * batches of up to {@link #BATCH_SIZE} exports, until the drain deadline has passed. The drain
+   * ends early if the database is unreachable; the remaining exports are spilled by {@link
+   * #shutdown()}.
+   */
+  private void drain() {
+    if (circuitBreaker.isOpen()) {
+      return;
+    }
+    int count = 0;
+    while (System.nanoTime() - drainDeadline < 0) {
+      List<PendingExport> pending = takeDueRetries(batchSize);
+      if (pending.size() < batchSize) {
+        queue.drainTo(pending, batchSize - pending.size());
+      }
+      if (pending.isEmpty()) {
         break;
       }
+      pending.removeIf(export -> !export.isRestored());
+      count += pending.size();
+      if (!exportPending(pending) && circuitBreaker.getFailures() > 0) {
+        break;
+      }
+    }
+    Logger.debug("drained {} export(s) to '{}'", count, exporterData.getName());
+  }
+
+  /**
+   * Removes the exports from the retry list whose backoff has passed.
+   *
+   * @param maxExports the maximum number of exports to take
+   * @return the exports to retry now, may be empty
+   */
+  private List<PendingExport> takeDueRetries(int maxExports) {
+    List<PendingExport> due = new ArrayList<>();
+    long now = System.nanoTime();
+    for (Iterator<PendingExport> iterator = retryExports.iterator();
+        iterator.hasNext() && due.size() < maxExports; ) {
+      PendingExport export = iterator.next();
+      if (export.getRetryAtNanos() - now <= 0) {
+        due.add(export);
+        iterator.remove();
+      }
+    }
+    return due;
+  }
+
+  /**
+   * Restores an export when it is taken from the queue. If its off-heap record cannot be decoded,
+   * the error is logged, the completion of the export is failed and the handle is returned without
+   * batches; the consumer skips such handles, so a corrupt record cannot stop it.
+   *
+   * @param export the export or handle taken from the queue
+   * @return the restored export, or the handle if it cannot be restored
+   */
+  static PendingExport restoreQueued(PendingExport export) {
+    try {
+      return export.restore();
+    } catch (IllegalStateException e) {
+      Logger.error(e, "cannot restore queued export, export lost");
+      export.getCompletion().completeExceptionally(new IOException(e.getMessage(), e));
+      return export;
+    }
+  }
+
+  /**
+   * Spills the exports that could not be written before the shutdown to the spool.
+   */
+  private void spillRemaining() {
+    List<PendingExport> remaining = new ArrayList<>(retryExports);
+    retryExports.clear();
+    queue.drainTo(remaining, Integer.MAX_VALUE);
+    remaining.removeIf(export -> !export.isRestored());
+    if (!remaining.isEmpty()) {
+      Logger.info("{} export(s) not written before shutdown, spill them", remaining.size());
+      remaining.forEach(this::spill);
+    }
+  }
+
+  /**
+   * Runs the table maintenance of the connection, e.g. the partition maintenance, once per {@link
+   * #MAINTENANCE_INTERVAL_NANOS}. A failed maintenance is repeated in the next interval.
+   */
+  private void maintainIfDue() {
+    long now = System.nanoTime();
+    if (now - nextMaintenanceNanos < 0) {
+      return;
+    }
+    nextMaintenanceNanos = now + MAINTENANCE_INTERVAL_NANOS;
+    try {
+      connection.maintain();
+    } catch (IOException e) {
+      Logger.warn("maintenance of '{}' failed: {}", exporterData.getName(), e.getMessage());
+    }
+  }
+
+  /**
+   * Checks with a single connection whether the database is reachable again.
+   *
+   * @return {@code true} if the database answered and the circuit breaker is closed
+   */
+  private boolean probe() {
+    try {
+      String version = connection.getDatabaseVersion();
+      circuitBreaker.recordSuccess();
+      Logger.info("database '{}' reachable again ({})", exporterData.getName(), version);
+      return true;
+    } catch (SQLException e) {
+      long delay = circuitBreaker.recordFailure();
+      Logger.warn(
+          "database '{}' still unreachable, next probe in {} ms: {}",
+          exporterData.getName(),
+          delay,
+          e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Collects the next exports to write from the queue and, if a replay is due, up to {@link
+   * #BATCH_SIZE} exports from the spool. The replayed exports are older and come first.
+   *
+   * @return the collected exports, may be empty
+   * @throws InterruptedException if the consumer thread is interrupted
+   */
+  private List<PendingExport> nextExports() throws InterruptedException {
+    List<PendingExport> pending = new ArrayList<>();
+    PendingExport first = queue.poll(SPOOL_POLL_MILLIS, TimeUnit.MILLISECONDS);
+    if (first != null) {
+      pending.add(first);
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchWaitMillis);
+      while (pending.size() < batchSize) {
+        if (queue.drainTo(pending, batchSize - pending.size()) > 0) {
+          continue;
+        }
+        long remaining = deadline - System.nanoTime();
+        PendingExport next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+        if (next == null) {
+          break;
+        }
+        pending.add(next);
+      }
+      pending.removeIf(export -> !export.isRestored());
+    }
+    ExportSpool currentSpool = spool;
+    if (running
+        && currentSpool != null
+        && currentSpool.hasReplayable()
+        && replayPacer.isDue(queue.size(), batchSize)) {
+      pending.addAll(0, readReplayable(currentSpool));
+    }
+    return pending;
+  }
+
+  /**
+   * Reads up to {@link #BATCH_SIZE} exports from the spool and hands over the completion futures
+   * and attempt counts kept for them by {@link #spill(PendingExport)}.
+   *
+   * @param currentSpool the open {@link ExportSpool}
+   * @return the replayed exports, may be empty
+   */
+  private List<PendingExport> readReplayable(ExportSpool currentSpool) {
+    List<PendingExport> replayed = new ArrayList<>();
+    try {
+      for (PendingExport export : currentSpool.readReplayable(batchSize)) {
+        CompletableFuture<Void> completion = spooledCompletions.remove(export.getSpoolId());
+        if (completion != null) {
+          export.setCompletion(completion);
+        }
+        Integer attempts = spooledAttempts.remove(export.getSpoolId());
+        if (attempts != null) {
+          export.setAttempts(attempts);
+        }
+        replayed.add(export);
+      }
+      Logger.info("replay {} export(s) from spool", replayed.size());
+    } catch (IOException e) {
+      Logger.error("cannot read spool: {}", e.getMessage());
+    }
+    return replayed;
+  }
+
+  /**
+   * Exports several pending exports.
+   *
+   * <p>Rows of tables with the same name and columns are combined into one {@link TableBatch}, so
+   * each target table is written with a single batch. With one writer, all tables are written in a
+   * single database transaction. With several writers, the tables are split into shards by table
+   * name and each shard is written in its own transaction by one writer, so independent tables are
+   * written concurrently over separate pooled connections. The next exports are only taken after
+   * all shards have finished, so the rows of a table are always written in order. The tables of
+   * the {@link BucketAggregator} are always written in their own shards, so a failing aggregate
+   * table does not roll back the raw rows.
+   *
+   * <p>After the commit, the spool records of the exports are acknowledged. Tables that could not
+   * be written because the database is unreachable or busy are kept in memory and retried after
+   * the backoff. If a round of several exports failed for another reason, each of them is retried
+   * alone, so a single export that the database rejects cannot hold back the others. An export
+   * that fails alone is kept in memory and retried with its own backoff until {@link
+   * #MAX_EXPORT_ATTEMPTS} attempts have failed; then it is moved to the dead-letter file of the
+   * spool.
+   *
+   * @param exports the {@link PendingExport} objects to write
+   * @return {@code true} if all tables were committed
+   */
+  private boolean exportPending(List<PendingExport> exports) {
+    long startTime = System.currentTimeMillis();
+    Map<TableSchema, TableBatch> batches = new LinkedHashMap<>();
+    int rowCount = 0;
+    for (PendingExport export : exports) {
+      for (TableBatch batch : export.getBatches()) {
+        rowCount += batch.getRowCount();
+        TableBatch combined = batches.get(batch.getSchema());
+        if (combined == null) {
+          combined = new TableBatch(batch.getSchema());
+          batches.put(batch.getSchema(), combined);
+        }
+        combined.addAll(batch);
+      }
+    }
+    List<TableBatch> raw = new ArrayList<>(batches.size());
+    List<TableBatch> aggregates = new ArrayList<>(0);
+    for (TableBatch batch : batches.values()) {
+      (BucketAggregator.isAggregate(batch.getSchema()) ? aggregates : raw).add(batch);
+    }
+    List<List<TableBatch>> shards = new ArrayList<>();
+    if (!raw.isEmpty()) {
+      shards.addAll(toShards(raw));
+    }
+    if (!aggregates.isEmpty()) {
+      shards.addAll(toShards(aggregates));
+    }
+    List<IOException> errors =
+        shards.size() == 1
+            ? Collections.singletonList(writeShard(shards.get(0)))
+            : writeShards(shards);
+    Set<TableSchema> failed = new HashSet<>();
+    boolean retryable = false;
+    for (int i = 0; i < shards.size(); i++) {
+      IOException error = errors.get(i);
+      if (error != null) {
+        shards.get(i).forEach(batch -> failed.add(batch.getSchema()));
+        retryable |= isRetryable(error);
+      }
+    }
+    if (retryable) {
+      long delay = circuitBreaker.recordFailure();
+      Logger.warn(
+          "database '{}' unreachable or busy ({} failure(s) in a row), retry in {} ms",
+          exporterData.getName(),
+          circuitBreaker.getFailures(),
+          delay);
+    } else {
+      circuitBreaker.recordSuccess();
+    }
+    if (failed.isEmpty()) {
+      long bytes = 0;
+      for (TableBatch batch : batches.values()) {
+        bytes += batch.estimatePayloadSize();
+      }
+      metrics.recordRound(exports.size(), rowCount, bytes);
+      exports.forEach(export -> metrics.recordCommitted(export.getCreatedNanos()));
+      Logger.debug(
+          "export {} transfer(s) with {} row(s) in {} table(s) to '{}' finished in {} ms",
+          exports.size(),
+          rowCount,
+          batches.size(),
+          exporterData.getName(),
+          (System.currentTimeMillis() - startTime));
+      acknowledge(exports);
+      exports.forEach(export -> export.getCompletion().complete(null));
+      return true;
+    }
+    List<PendingExport> rejected = new ArrayList<>();
+    for (PendingExport export : exports) {
+      PendingExport remaining = remainingPart(export, failed);
+      if (remaining == null) {
+        export.getCompletion().complete(null);
+      } else if (retryable) {
+        retryExports.add(remaining);
+      } else {
+        rejected.add(remaining);
+      }
+    }
+    if (rejected.size() == 1) {
+      retryOrReject(rejected.get(0));
+    } else {
+      for (PendingExport export : rejected) {
+        if (circuitBreaker.getFailures() > 0) {
+          retryExports.add(export);
+        } else {
+          exportPending(Collections.singletonList(export));
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Keeps an export that failed alone in the retry list with an exponential backoff, or gives it up
+   * after {@link #MAX_EXPORT_ATTEMPTS} failed attempts. A rejected export is written to the
+   * dead-letter file of the spool; without a spool it is dropped.
+   *
+   * @param export the failed {@link PendingExport}
+   */
+  private void retryOrReject(PendingExport export) {
+    export.setAttempts(export.getAttempts() + 1);
+    if (export.getAttempts() < MAX_EXPORT_ATTEMPTS) {
+      long delay =
+          Math.min(RETRY_MAX_DELAY_MILLIS, RETRY_BASE_DELAY_MILLIS << (export.getAttempts() - 1));
+      export.setRetryAtNanos(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay));
+      retryExports.add(export);
+      Logger.warn(
+          "export with {} table(s) to '{}' failed {} time(s), retry in {} ms",
+          export.getBatches().size(),
+          exporterData.getName(),
+          export.getAttempts(),
+          delay);
+      return;
+    }
+    metrics.recordRejected();
+    ExportSpool currentSpool = spool;
+    if (currentSpool == null) {
+      Logger.error(
+          "export with {} table(s) to '{}' failed {} times, dropped",
+          export.getBatches().size(),
+          exporterData.getName(),
+          export.getAttempts());
+    } else {
+      try {
+        Path file = currentSpool.deadLetter(export.getBatches());
+        Logger.error(
+            "export with {} table(s) to '{}' failed {} times, moved to {}",
+            export.getBatches().size(),
+            exporterData.getName(),
+            export.getAttempts(),
+            file);
+      } catch (IOException e) {
+        Logger.error("cannot write dead-letter file, rejected export lost: {}", e.getMessage());
+      }
+    }
+    acknowledge(export);
+    export
+        .getCompletion()
+        .completeExceptionally(new IOException("export rejected by the database"));
+  }
+
+  /**
+   * Splits the batches into shards by table name, one shard per writer at most.
+   *
+   * @param batches the combined batches
+   * @return the non-empty shards
+   */
+  private List<List<TableBatch>> toShards(Collection<TableBatch> batches) {
+    int shardCount = Math.min(writerCount, batches.size());
+    if (shardCount <= 1) {
+      return Collections.singletonList(new ArrayList<>(batches));
+    }
+    List<List<TableBatch>> shards = new ArrayList<>(shardCount);
+    for (int i = 0; i < shardCount; i++) {
+      shards.add(new ArrayList<>());
+    }
+    for (TableBatch batch : batches) {
+      int shard = Math.floorMod(batch.getSchema().getTableName().hashCode(), shardCount);
+      shards.get(shard).add(batch);
+    }
+    shards.removeIf(List::isEmpty);
+    return shards;
+  }
+
+  /**
+   * Writes one shard in a single transaction.
+   *
+   * @param shard the batches of the shard
+   * @return the error, or {@code null} on success
+   */
+  private IOException writeShard(List<TableBatch> shard) {
+    try {
+      connection.writeBatches(shard);
+      return null;
+    } catch (IOException e) {
+      Logger.error("export to '{}' failed: {}", exporterData.getName(), e.getMessage());
+      return e;
+    } catch (RuntimeException e) {
+      Logger.error(e, "export to '{}' failed", exporterData.getName());
+      return new IOException(e.toString(), e);
+    }
+  }
+
+  /**
+   * Writes the shards concurrently with the writer pool and waits until all of them are finished.
+   *
+   * <p>The wait is not cut short by an interrupt, because the outcome of every running transaction
+   * must be known to acknowledge or keep the exports correctly.
+   *
+   * @param shards the shards to write
+   * @return the error of every shard in shard order, {@code null} for a successful shard
+   */
+  private List<IOException> writeShards(List<List<TableBatch>> shards) {
+    ExecutorService pool = getWriterPool();
+    List<Future<IOException>> futures = new ArrayList<>(shards.size());
+    for (List<TableBatch> shard : shards) {
+      futures.add(pool.submit(() -> writeShard(shard)));
+    }
+    List<IOException> errors = new ArrayList<>(shards.size());
+    boolean interrupted = false;
+    for (int i = 0; i < futures.size(); i++) {
+      try {
+        errors.add(futures.get(i).get());
+      } catch (InterruptedException e) {
+        interrupted = true;
+        i--;
+      } catch (ExecutionException e) {
+        Logger.error("writer failed: {}", e.getCause().getMessage());
+        errors.add(new IOException(e.getCause().getMessage(), e.getCause()));
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    return errors;
+  }
+
+  /**
+   * Checks whether a write failed because the database could not be reached or was temporarily
+   * busy, as opposed to an error caused by the data or the schema. Deadlocks and serialization
+   * failures (SQL state {@code 40001}), lock wait timeouts and every {@link SQLTransientException}
+   * succeed when repeated. Errors that are not caused by a {@link SQLException}, such as a {@link
+   * RuntimeException} while binding the values, are never retryable.
+   *
+   * @param e the error of the write
+   * @return {@code true} if the write should be retried after a backoff
+   */
+  static boolean isRetryable(IOException e) {
+    if (!(e.getCause() instanceof SQLException)) {
+      return false;
+    }
+    SQLException sqlException = (SQLException) e.getCause();
+    String sqlState = sqlException.getSQLState();
+    return sqlState == null
+        || sqlState.startsWith("08")
+        || sqlState.equals("40001")
+        || sqlException.getErrorCode() == ER_LOCK_WAIT_TIMEOUT
+        || sqlException instanceof SQLRecoverableException
+        || sqlException instanceof SQLTransientException;
+  }
+
+  /**
+   * Returns the writer pool, creating it if it does not exist yet or the number of writers or the
+   * {@link ThreadMode} has changed. The pool is only used by the consumer thread.
+   *
+   * <p>Platform writers are kept in a fixed pool. Virtual writers are cheap to create and are not
+   * pooled; their number is still limited by the number of shards.
+   *
+   * @return the {@link ExecutorService} of the writers
+   */
+  private ExecutorService getWriterPool() {
+    int size = writerCount;
+    ThreadMode mode = threadMode;
+    if (writerPool == null || writerPoolSize != size || writerPoolMode != mode) {
+      closeWriterPool();
+      ThreadFactory threadFactory = mode.newThreadFactory("mySQLExporterWriter", true);
+      writerPool =
+          mode == ThreadMode.VIRTUAL
+              ? Executors.newCachedThreadPool(threadFactory)
+              : Executors.newFixedThreadPool(size, threadFactory);
+      writerPoolSize = size;
+      writerPoolMode = mode;
+    }
+    return writerPool;
+  }
+
+  /** Shuts down the writer pool after the running writes have finished. */
+  private void closeWriterPool() {
+    ExecutorService pool = writerPool;
+    writerPool = null;
+    if (pool == null) {
+      return;
+    }
+    pool.shutdown();
+    try {
+      if (!pool.awaitTermination(BLOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        pool.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      pool.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Returns the part of an export that still has to be written. If some of its tables were
+   * written, the export is acknowledged and a new export with the failed tables is returned.
+   *
+   * @param export the {@link PendingExport}
+   * @param failed the schemas that could not be written
+   * @return the export to keep, or {@code null} if all of its tables were written
+   */
+  private PendingExport remainingPart(PendingExport export, Set<TableSchema> failed) {
+    List<TableBatch> remaining = new ArrayList<>();
+    for (TableBatch batch : export.getBatches()) {
+      if (failed.contains(batch.getSchema())) {
+        remaining.add(batch);
+      }
+    }
+    if (remaining.size() == export.getBatches().size()) {
+      return export;
+    }
+    acknowledge(export);
+    if (remaining.isEmpty()) {
+      return null;
+    }
+    PendingExport remainingExport =
+        new PendingExport(remaining, PendingExport.NOT_SPOOLED, export.getCreatedNanos());
+    remainingExport.setCompletion(export.getCompletion());
+    remainingExport.setAttempts(export.getAttempts());
+    return remainingExport;
+  }
+
+  /**
+   * Converts the non-empty tables of a {@link TransferData} into {@link TableBatch} objects. If a
+   * heartbeat is configured, rows whose values have not changed are removed by the {@link
+   * DeadbandFilter}.
+   *
+   * <p>If aggregate buckets are configured, all raw rows are added to the {@link BucketAggregator}
+   * before filtering, and the rows of finished buckets are appended to the batches.
+   *
+   * @param transferData the {@link TransferData} to convert
+   * @param filter the {@link DeadbandFilter}, or {@code null} to keep all rows
+   * @param undo collects the values remembered by the filter
+   * @return the batches, may be empty
+   */
+  private List<TableBatch> toBatches(
+      TransferData transferData, DeadbandFilter filter, DeadbandFilter.Undo undo) {
+    List<TableBatch> batches = new ArrayList<>(transferData.getTables().size());
+    BucketAggregator aggregator = bucketAggregator;
+    List<TableBatch> aggregates = new ArrayList<>(0);
+    long now = System.nanoTime();
+    long timeMillis =
+        transferData.getTimestamp() != null
+            ? transferData.getTimestamp().toInstant().toEpochMilli()
+            : System.currentTimeMillis();
+    for (Table table : transferData.getTables()) {
+      if (table.getRows().isEmpty() || table.getColumns().isEmpty()) {
+        Logger.warn("empty table '{}', skip export", table.getTableName());
+        continue;
+      }
+      TableBatch batch = TableBatch.of(table);
+      if (aggregator != null) {
+        aggregates.addAll(aggregator.add(batch, timeMillis));
+      }
+      if (filter != null) {
+        TableBatch changed = filter.apply(batch, now, undo);
+        int skipped = batch.getRowCount() - (changed == null ? 0 : changed.getRowCount());
+        if (skipped > 0) {
+          metrics.recordFiltered(skipped);
+          Logger.debug("{} unchanged row(s) of '{}' skipped", skipped, table.getTableName());
+        }
+        batch = changed;
+      }
+      if (batch != null) {
+        batches.add(batch);
+      }
+    }
+    batches.addAll(aggregates);
+    return batches;
+  }
+
+  /**
+   * Keeps an export that cannot be written now in the spool, so it is replayed later. Without a
+   * spool the export is lost.
+   *
+   * <p>The completion future of a spooled export is kept by its spool id and handed over to the
+   * export replayed from the spool.
+   *
+   * @param export the {@link PendingExport} to keep
+   */
+  private void spill(PendingExport export) {
+    ExportSpool currentSpool = spool;
+    if (currentSpool == null) {
+      Logger.warn("no spool configured, export with {} table(s) lost", export.getBatches().size());
+      export.getCompletion().completeExceptionally(new IOException("export lost, no spool"));
+      return;
+    }
+    if (export.isSpooled()) {
+      spooledCompletions.put(export.getSpoolId(), export.getCompletion());
+      spooledAttempts.put(export.getSpoolId(), export.getAttempts());
+      currentSpool.release(export.getSpoolId());
+      return;
+    }
+    try {
+      long spoolId = currentSpool.append(export.getBatches(), false);
+      spooledCompletions.put(spoolId, export.getCompletion());
+      spooledAttempts.put(spoolId, export.getAttempts());
+    } catch (IOException e) {
+      Logger.error("cannot spool export, export lost: {}", e.getMessage());
+      export.getCompletion().completeExceptionally(e);
+    }
+  }
+
+  /**
+   * Fails the completion futures of exports that remain in the spool. They are replayed after the
+   * next start, but nobody waits for them any longer.
+   */
+  private void failSpooledCompletions() {
+    for (CompletableFuture<Void> completion : spooledCompletions.values()) {
+      completion.completeExceptionally(new IOException("exporter stopped, export kept in spool"));
+    }
+    spooledCompletions.clear();
+    spooledAttempts.clear();
+  }
+
+  /**
+   * Removes the spool record of a committed export.
+   *
+   * @param export the committed {@link PendingExport}
+   */
+  private void acknowledge(PendingExport export) {
+    ExportSpool currentSpool = spool;
+    if (export.isSpooled() && currentSpool != null) {
+      currentSpool.acknowledge(export.getSpoolId());
+    }
+  }
+
+  /**
+   * Removes the spool records of committed exports with one forced write per spool segment.
+   *
+   * @param exports the committed {@link PendingExport} objects
+   */
+  private void acknowledge(List<PendingExport> exports) {
+    ExportSpool currentSpool = spool;
+    if (currentSpool == null) {
+      return;
+    }
+    List<Long> recordIds = new ArrayList<>(exports.size());
+    for (PendingExport export : exports) {
+      if (export.isSpooled()) {
+        recordIds.add(export.getSpoolId());
+      }
+    }
+    if (!recordIds.isEmpty()) {
+      currentSpool.acknowledge(recordIds);
+    }
+  }
+
+  /**
+   * Discards an export that was dropped by the {@link OverflowPolicy}, including its spool record.
+   *
+   * @param export the dropped {@link PendingExport}
+   */
+  private void discard(PendingExport export) {
+    acknowledge(export);
+    export.getCompletion().completeExceptionally(new IOException("export dropped, queue full"));
+  }
+
+  /**
+   * Opens the spool configured for this exporter unless the spool is switched off. Without a
+   * configured directory, the spool is kept in {@code .solarreader/spool} in the home directory of
+   * the user, an absolute path that does not depend on the working directory of the host process.
+   */
+  private void openSpool() {
+    if (spoolMode == SpoolMode.OFF || spool != null) {
+      return;
+    }
+    String name = exporterData != null ? exporterData.getName() : "default";
+    Path base = spoolDirectory.isEmpty() ? DEFAULT_SPOOL_BASE : Paths.get(spoolDirectory);
+    Path directory = base.resolve(name.replaceAll("[^A-Za-z0-9_.-]", "_"));
+    ExportSpool newSpool = new ExportSpool(directory, SPOOL_SEGMENT_SIZE);
+    try {
+      newSpool.open();
+      spool = newSpool;
+      metrics.setSpool(newSpool);
+      Logger.debug("spool opened in {}", directory.toAbsolutePath());
+    } catch (IOException e) {
+      Logger.error("cannot open spool in {}: {}", directory, e.getMessage());
+    }
+  }
+
+  /**
+   * Closes the spool. Records that are not committed remain on disk and are replayed after the
+   * next start.
+   */
+  private void closeSpool() {
+    ExportSpool currentSpool = spool;
+    spool = null;
+    metrics.setSpool(null);
+    if (currentSpool != null) {
+      currentSpool.close();
     }
   }
 
@@ -239,9 +1561,170 @@ public class MySQLExporter extends AbstractExporter {
 
   /**
    * Updates the configuration of the exporter based on the exporter data.
+   *
+   * <p>A new {@link MySQLConnection} is created for the new settings and the previous one is closed,
+   * which releases its pooled database connections.
+   *
+   * <p>An open spool is kept until the exporter is restarted, because queued exports refer to its
+   * records: a new spool directory or switching the spool off takes effect with the next start. A
+   * spool that is switched on while the exporter is running is opened right away.
+   *
+   * <p>The {@link BucketAggregator} and the {@link DeadbandFilter} are only replaced when their
+   * settings have changed, so saving other settings keeps the open buckets and the last written
+   * values.
    */
   @Override
   protected void updateConfiguration() {
-    this.connection = connectionFactory.createConnection(exporterData.getSetting());
+    Setting setting = exporterData.getSetting();
+    batchSize = Math.max(1, SettingValues.getInt(setting, BATCH_SIZE, DEFAULT_BATCH_SIZE));
+    batchWaitMillis =
+        Math.max(0, SettingValues.getInt(setting, BATCH_WAIT, DEFAULT_BATCH_WAIT_MILLIS));
+    configureSpool(
+        SpoolMode.fromString(SettingValues.getString(setting, SPOOL, null)),
+        SettingValues.getString(setting, SPOOL_DIR, DEFAULT_SPOOL_DIR));
+    writerCount = Math.max(1, SettingValues.getInt(setting, WRITERS, DEFAULT_WRITERS));
+    threadMode = ThreadMode.fromString(SettingValues.getString(setting, THREAD_MODE, null));
+    String aggregates = SettingValues.getString(setting, AGGREGATES, null);
+    if (!Objects.equals(aggregates, aggregatesConfiguration)) {
+      aggregatesConfiguration = aggregates;
+      bucketAggregator = BucketAggregator.of(aggregates);
+    }
+    int heartbeatSeconds = SettingValues.getInt(setting, HEARTBEAT, 0);
+    String deadband = SettingValues.getString(setting, DEADBAND, null);
+    String deadbandColumns = SettingValues.getString(setting, DEADBAND_COLUMNS, null);
+    List<Object> deadbandSettings = Arrays.asList(heartbeatSeconds, deadband, deadbandColumns);
+    if (!deadbandSettings.equals(deadbandConfiguration)) {
+      deadbandConfiguration = deadbandSettings;
+      deadbandFilter =
+          heartbeatSeconds > 0
+              ? DeadbandFilter.of(
+                  deadband, deadbandColumns, TimeUnit.SECONDS.toNanos(heartbeatSeconds))
+              : null;
+    }
+    drainTimeoutMillis =
+        TimeUnit.SECONDS.toMillis(
+            Math.max(
+                0, SettingValues.getInt(setting, DRAIN_TIMEOUT, DEFAULT_DRAIN_TIMEOUT_SECONDS)));
+    long queueMemory =
+        SettingValues.getInt(setting, QUEUE_MEMORY, DEFAULT_QUEUE_MEMORY_MB) * 1024L * 1024L;
+    configureOffHeapRing(
+        QueueStorage.fromString(SettingValues.getString(setting, QUEUE_STORAGE, null)),
+        queueMemory);
+    queue.configure(
+        SettingValues.getInt(setting, QUEUE_SIZE, DEFAULT_QUEUE_SIZE),
+        queueMemory,
+        OverflowPolicy.fromString(SettingValues.getString(setting, OVERFLOW_POLICY, null)));
+    if (spoolMode == SpoolMode.OFF) {
+      Logger.warn(
+          "spool of '{}' is off, exports that are {} are lost",
+          exporterData.getName(),
+          queue.getPolicy() == OverflowPolicy.SPILL
+              ? "spilled on a full queue or not written before shutdown"
+              : "not written before shutdown");
+    }
+    MySQLConnection previous = this.connection;
+    MySQLConnection newConnection = connectionFactory.createConnection(setting);
+    newConnection.setMetrics(metrics);
+    this.connection = newConnection;
+    if (previous != null) {
+      previous.close();
+    }
+  }
+
+  /**
+   * Applies the spool settings. While a spool is open, only the switch between {@link
+   * SpoolMode#OVERFLOW} and {@link SpoolMode#JOURNAL} is applied; the other changes are logged and
+   * take effect after a restart.
+   *
+   * @param mode the configured {@link SpoolMode}
+   * @param directory the configured spool directory
+   */
+  private void configureSpool(SpoolMode mode, String directory) {
+    if (spool == null) {
+      spoolMode = mode;
+      spoolDirectory = directory;
+      if (running) {
+        openSpool();
+      }
+      return;
+    }
+    if (mode == SpoolMode.OFF || !directory.equals(spoolDirectory)) {
+      Logger.info(
+          "spool of '{}' stays open in '{}' until the exporter is restarted",
+          exporterData.getName(),
+          spoolDirectory);
+    }
+    if (mode != SpoolMode.OFF) {
+      spoolMode = mode;
+    }
+  }
+
+  /**
+   * Provides the {@link OffHeapRing} for {@link QueueStorage#OFF_HEAP} with the size of the queue
+   * memory. A ring is only replaced if its size changes; exports already stored in the previous
+   * ring keep a reference to it and are restored from there.
+   *
+   * @param storage the configured {@link QueueStorage}
+   * @param queueMemory the memory limit of the queue in bytes
+   */
+  private void configureOffHeapRing(QueueStorage storage, long queueMemory) {
+    if (storage != QueueStorage.OFF_HEAP) {
+      offHeapRing = null;
+      return;
+    }
+    int capacity = (int) Math.min(Integer.MAX_VALUE, Math.max(1, queueMemory));
+    OffHeapRing current = offHeapRing;
+    if (current == null || current.getCapacity() != capacity) {
+      offHeapRing = new OffHeapRing(capacity);
+      Logger.debug("off-heap queue storage with {} bytes", capacity);
+    }
+  }
+
+  /**
+   * Registers the {@link ExportMetrics} of this exporter with the platform MBean server.
+   */
+  private void registerMetrics() {
+    String name = exporterData != null ? exporterData.getName() : "default";
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName objectName =
+          new ObjectName(
+              "de.schnippsche.solarreader.plugins:type=MySQLExporter,name="
+                  + ObjectName.quote(name));
+      if (server.isRegistered(objectName)) {
+        server.unregisterMBean(objectName);
+      }
+      server.registerMBean(metrics, objectName);
+      metricsName = objectName;
+    } catch (JMException e) {
+      Logger.warn("cannot register metrics of '{}': {}", name, e.getMessage());
+    }
+  }
+
+  /**
+   * Removes the {@link ExportMetrics} of this exporter from the platform MBean server.
+   */
+  private void unregisterMetrics() {
+    ObjectName objectName = metricsName;
+    metricsName = null;
+    if (objectName == null) {
+      return;
+    }
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    } catch (JMException e) {
+      Logger.debug("cannot unregister metrics: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Closes the current connection and releases its pooled database connections.
+   */
+  private void closeConnection() {
+    MySQLConnection current = this.connection;
+    this.connection = null;
+    if (current != null) {
+      current.close();
+    }
   }
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A fixed-size FIFO ring of variable-length records in a direct {@link ByteBuffer}.
+ *
+ * <p>Each record is stored as its length followed by its bytes and may wrap around the end of the
+ * buffer, so the whole capacity is usable without fragmentation. Records are read in the order in
+ * which they were written. The memory is allocated once and lies outside the Java heap.
+ *
+ * <p>This class is not thread-safe; the {@link ExportQueue} accesses it only while holding its
+ * lock.
+ */
+final class OffHeapRing {
+  private static final int HEADER_SIZE = Integer.BYTES;
+  private final ByteBuffer buffer;
+  private final int capacity;
+  private long head;
+  private long tail;
+  private int count;
+
+  /**
+   * Constructs a new {@code OffHeapRing}.
+   *
+   * @param capacity the size of the buffer in bytes
+   */
+  OffHeapRing(int capacity) {
+    this.capacity = Math.max(HEADER_SIZE, capacity);
+    this.buffer = ByteBuffer.allocateDirect(this.capacity);
+  }
+
+  /**
+   * Appends a record if there is enough free space.
+   *
+   * @param record the bytes of the record
+   * @return {@code true} if the record was written, {@code false} if the ring is too full
+   */
+  boolean write(byte[] record) {
+    long required = (long) HEADER_SIZE + record.length;
+    if (required > capacity - (tail - head)) {
+      return false;
+    }
+    byte[] header = ByteBuffer.allocate(HEADER_SIZE).putInt(record.length).array();
+    put(header);
+    put(record);
+    count++;
+    return true;
+  }
+
+  /**
+   * Removes and returns the oldest record.
+   *
+   * @return the bytes of the record
+   * @throws IllegalStateException if the ring is empty
+   */
+  byte[] read() {
+    if (count == 0) {
+      throw new IllegalStateException("off-heap ring is empty");
+    }
+    byte[] header = new byte[HEADER_SIZE];
+    get(header);
+    byte[] record = new byte[ByteBuffer.wrap(header).getInt()];
+    get(record);
+    count--;
+    return record;
+  }
+
+  /**
+   * Returns the number of stored records.
+   *
+   * @return the record count
+   */
+  int size() {
+    return count;
+  }
+
+  /**
+   * Returns the number of bytes occupied by the stored records including their headers.
+   *
+   * @return the used bytes
+   */
+  long getUsedBytes() {
+    return tail - head;
+  }
+
+  /**
+   * Returns the size of the buffer.
+   *
+   * @return the capacity in bytes
+   */
+  int getCapacity() {
+    return capacity;
+  }
+
+  private void put(byte[] source) {
+    int position = (int) (tail % capacity);
+    int first = Math.min(source.length, capacity - position);
+    ByteBuffer target = buffer.duplicate();
+    target.position(position);
+    target.put(source, 0, first);
+    if (first < source.length) {
+      target.position(0);
+      target.put(source, first, source.length - first);
+    }
+    tail += source.length;
+  }
+
+  private void get(byte[] target) {
+    int position = (int) (head % capacity);
+    int first = Math.min(target.length, capacity - position);
+    ByteBuffer source = buffer.duplicate();
+    source.position(position);
+    source.get(target, 0, first);
+    if (first < target.length) {
+      source.position(0);
+      source.get(target, first, target.length - first);
+    }
+    head += target.length;
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.util.Locale;
+
+/** Defines what happens when a new export arrives while the {@link ExportQueue} is full. */
+public enum OverflowPolicy {
+  /** The producer waits until the consumer has made room in the queue. */
+  BLOCK,
+  /** The oldest queued export is discarded to make room for the new one. */
+  DROP_OLDEST,
+  /** The new export is discarded. */
+  DROP_NEWEST,
+  /**
+   * The new export is written to the local {@link ExportSpool} and replayed later; without a spool
+   * it is discarded. This is the default, because it never makes the producer wait.
+   */
+  SPILL;
+
+  /**
+   * Returns the {@code OverflowPolicy} matching the given configuration value. Case and the
+   * underscore are ignored, so {@code "dropoldest"} and {@code "DROP_OLDEST"} are equivalent.
+   *
+   * @param value the configuration value, may be {@code null}
+   * @return the matching policy or {@link #SPILL} if the value is empty or unknown
+   */
+  public static OverflowPolicy fromString(String value) {
+    if (value != null) {
+      String normalized = value.trim().replace("_", "").toUpperCase(Locale.ROOT);
+      for (OverflowPolicy policy : values()) {
+        if (policy.name().replace("_", "").equals(normalized)) {
+          return policy;
+        }
+      }
+    }
+    return SPILL;
+  }
+}
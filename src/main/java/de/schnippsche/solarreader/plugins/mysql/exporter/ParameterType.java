@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.Date;
+
+/**
+ * The JDBC type used to bind the values of one column.
+ *
+ * <p>The type is resolved by the {@link ColumnBuffer} from the first non-null value of a column.
+ * Afterwards every value is bound with the matching typed setter such as {@link
+ * PreparedStatement#setDouble(int, double)}, so the driver does not have to inspect each value as
+ * with {@link PreparedStatement#setObject(int, Object)}. Values that do not match the resolved type
+ * fall back to {@code setObject}.
+ *
+ * <p>A column that mixes numeric types is widened to {@link #DOUBLE}, see {@link
+ * #widen(ParameterType, ParameterType)}; any other mix becomes {@link #OBJECT}.
+ *
+ * <p>Each type also defines the column definition used when {@link SchemaCatalog} creates a table
+ * or adds a column. Integral values get a {@code DOUBLE} column, because the first value of a
+ * measurement often happens to be integral while later values are not. {@link #OBJECT} has no
+ * column definition, because its values have no common SQL type.
+ */
+enum ParameterType {
+  /** Floating point values, bound with {@link PreparedStatement#setDouble(int, double)}. */
+  DOUBLE(Types.DOUBLE, "DOUBLE") {
+    @Override
+    boolean accepts(Object value) {
+      return value instanceof Double || value instanceof Float;
+    }
+
+    @Override
+    void set(PreparedStatement statement, int index, Object value) throws SQLException {
+      statement.setDouble(index, ((Number) value).doubleValue());
+    }
+  },
+  /** Integral values, bound with {@link PreparedStatement#setLong(int, long)}. */
+  LONG(Types.BIGINT, "DOUBLE") {
+    @Override
+    boolean accepts(Object value) {
+      return value instanceof Long
+          || value instanceof Integer
+          || value instanceof Short
+          || value instanceof Byte;
+    }
+
+    @Override
+    void set(PreparedStatement statement, int index, Object value) throws SQLException {
+      statement.setLong(index, ((Number) value).longValue());
+    }
+  },
+  /** Decimal values, bound with {@link PreparedStatement#setBigDecimal(int, BigDecimal)}. */
+  DECIMAL(Types.DECIMAL, "DECIMAL(30,10)") {
+    @Override
+    boolean accepts(Object value) {
+      return value instanceof BigDecimal;
+    }
+
+    @Override
+    void set(PreparedStatement statement, int index, Object value) throws SQLException {
+      statement.setBigDecimal(index, (BigDecimal) value);
+    }
+  },
+  /** Text values, bound with {@link PreparedStatement#setString(int, String)}. */
+  STRING(Types.VARCHAR, "VARCHAR(255)") {
+    @Override
+    boolean accepts(Object value) {
+      return value instanceof CharSequence;
+    }
+
+    @Override
+    void set(PreparedStatement statement, int index, Object value) throws SQLException {
+      statement.setString(index, value.toString());
+    }
+  },
+  /** Boolean values, bound with {@link PreparedStatement#setBoolean(int, boolean)}. */
+  BOOLEAN(Types.BOOLEAN, "BOOLEAN") {
+    @Override
+    boolean accepts(Object value) {
+      return value instanceof Boolean;
+    }
+
+    @Override
+    void set(PreparedStatement statement, int index, Object value) throws SQLException {
+      statement.setBoolean(index, (Boolean) value);
+    }
+  },
+  /**
+   * Date and time values, bound with {@link PreparedStatement#setTimestamp(int, Timestamp)}. Values
+   * with a time zone or offset are converted to the default time zone, see {@link
+   * #toTimestamp(Object)}.
+   */
+  TIMESTAMP(Types.TIMESTAMP, "DATETIME(3)") {
+    @Override
+    boolean accepts(Object value) {
+      return toTimestamp(value) != null;
+    }
+
+    @Override
+    void set(PreparedStatement statement, int index, Object value) throws SQLException {
+      statement.setTimestamp(index, toTimestamp(value));
+    }
+  },
+  /** Any other value, bound with {@link PreparedStatement#setObject(int, Object)}. */
+  OBJECT(Types.VARCHAR, null) {
+    @Override
+    boolean accepts(Object value) {
+      return true;
+    }
+
+    @Override
+    void set(PreparedStatement statement, int index, Object value) throws SQLException {
+      statement.setObject(index, value);
+    }
+  };
+
+  private final int sqlType;
+  private final String columnDefinition;
+
+  ParameterType(int sqlType, String columnDefinition) {
+    this.sqlType = sqlType;
+    this.columnDefinition = columnDefinition;
+  }
+
+  /**
+   * Returns the type matching the given value.
+   *
+   * @param value the value, may be {@code null}
+   * @return the matching type or {@link #OBJECT} if the value is {@code null} or of another type
+   */
+  static ParameterType of(Object value) {
+    for (ParameterType type : values()) {
+      if (value != null && type.accepts(value)) {
+        return type;
+      }
+    }
+    return OBJECT;
+  }
+
+  /**
+   * Returns the type of a column that contains values of both types. {@link #LONG}, {@link
+   * #DOUBLE} and {@link #DECIMAL} are widened to {@link #DOUBLE}, so a measurement that is
+   * sometimes integral keeps a numeric column; all other combinations give {@link #OBJECT}.
+   *
+   * @param first the type of the values already in the column
+   * @param second the type of the added values
+   * @return the common type
+   */
+  static ParameterType widen(ParameterType first, ParameterType second) {
+    if (first == second) {
+      return first;
+    }
+    return first.isNumeric() && second.isNumeric() ? DOUBLE : OBJECT;
+  }
+
+  /**
+   * Checks whether values of this type are numbers.
+   *
+   * @return {@code true} for {@link #LONG}, {@link #DOUBLE} and {@link #DECIMAL}
+   */
+  boolean isNumeric() {
+    return this == LONG || this == DOUBLE || this == DECIMAL;
+  }
+
+  /**
+   * Converts a date and time value to a {@link Timestamp} in the default time zone. This conversion
+   * is shared by the bound parameters and the text of {@code LOAD DATA}, so both write the same
+   * value.
+   *
+   * @param value the value, may be {@code null}
+   * @return the {@link Timestamp}, or {@code null} if the value is not a supported date and time
+   */
+  static Timestamp toTimestamp(Object value) {
+    if (value instanceof Timestamp) {
+      return (Timestamp) value;
+    }
+    if (value instanceof LocalDateTime) {
+      return Timestamp.valueOf((LocalDateTime) value);
+    }
+    if (value instanceof Date) {
+      return new Timestamp(((Date) value).getTime());
+    }
+    if (value instanceof Instant) {
+      return Timestamp.from((Instant) value);
+    }
+    if (value instanceof ZonedDateTime) {
+      return Timestamp.from(((ZonedDateTime) value).toInstant());
+    }
+    if (value instanceof OffsetDateTime) {
+      return Timestamp.from(((OffsetDateTime) value).toInstant());
+    }
+    return null;
+  }
+
+  /**
+   * Returns the SQL column definition for values of this type.
+   *
+   * @return the column type, e.g. {@code DOUBLE}, or {@code null} for {@link #OBJECT}
+   */
+  String getColumnDefinition() {
+    return columnDefinition;
+  }
+
+  /**
+   * Binds a value to the given parameter.
+   *
+   * @param statement the {@link PreparedStatement}
+   * @param index the parameter index, starting with 1
+   * @param value the value, may be {@code null}
+   * @throws SQLException if the value cannot be bound
+   */
+  void bind(PreparedStatement statement, int index, Object value) throws SQLException {
+    if (value == null) {
+      statement.setNull(index, sqlType);
+    } else if (accepts(value)) {
+      set(statement, index, value);
+    } else {
+      statement.setObject(index, value);
+    }
+  }
+
+  abstract boolean accepts(Object value);
+
+  abstract void set(PreparedStatement statement, int index, Object value) throws SQLException;
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+/** Defines the range of one partition of the tables created by the {@link SchemaCatalog}. */
+public enum PartitionInterval {
+  /** Tables are created without partitions. */
+  OFF(0),
+  /** One partition per day; partitions for the next week are created in advance. */
+  DAY(7),
+  /** One partition per month; partitions for the next two months are created in advance. */
+  MONTH(2);
+
+  private final int ahead;
+
+  PartitionInterval(int ahead) {
+    this.ahead = ahead;
+  }
+
+  /**
+   * Returns the {@code PartitionInterval} matching the given configuration value.
+   *
+   * @param value the configuration value, may be {@code null}
+   * @return the matching interval or {@link #OFF} if the value is empty or unknown
+   */
+  public static PartitionInterval fromString(String value) {
+    if (value != null) {
+      for (PartitionInterval interval : values()) {
+        if (interval.name().equals(value.trim().toUpperCase(Locale.ROOT))) {
+          return interval;
+        }
+      }
+    }
+    return OFF;
+  }
+
+  /**
+   * Returns the number of partitions after the current one that are created in advance.
+   *
+   * @return the number of future partitions
+   */
+  int getAhead() {
+    return ahead;
+  }
+
+  /**
+   * Returns the first day of the partition containing the given day.
+   *
+   * @param day the day
+   * @return the start of the partition
+   */
+  LocalDate start(LocalDate day) {
+    return this == MONTH ? day.withDayOfMonth(1) : day;
+  }
+
+  /**
+   * Returns the first day of the partition following the one containing the given day.
+   *
+   * @param day the day
+   * @return the exclusive end of the partition
+   */
+  LocalDate next(LocalDate day) {
+    return this == MONTH ? start(day).plusMonths(1) : day.plusDays(1);
+  }
+}
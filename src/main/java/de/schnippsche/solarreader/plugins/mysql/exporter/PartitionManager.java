@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.tinylog.Logger;
+
+/**
+ * Creates and maintains the {@code RANGE} partitions of the tables created by the exporter.
+ *
+ * <p>Tables are partitioned by {@code TO_DAYS} of their first date and time column. Each partition
+ * is named after its first day, e.g. {@code p20250301}, and a final partition {@code pmax} takes
+ * all rows beyond the last one, so an insert never fails because a partition is missing.
+ *
+ * <p>The periodic {@link #maintain(Connection, LocalDate, Set)} splits future partitions off
+ * {@code pmax} and drops the partitions whose rows are all older than the retention, which removes
+ * them without deleting single rows. Because dropping a partition deletes data, only tables that
+ * look exactly like the ones created here are maintained: the exporter must have written to the
+ * table, it must be partitioned by {@code TO_DAYS} of a single column, and every partition before
+ * {@code pmax} must be named after its first day and cover one day or one month. Other tables are
+ * skipped with a warning.
+ */
+final class PartitionManager {
+  private static final String MAX_PARTITION = "pmax";
+  private static final long TO_DAYS_EPOCH_DAY = 719528;
+  private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("'p'yyyyMMdd");
+  private static final Pattern NAME_PATTERN = Pattern.compile("p\\d{8}");
+  private static final Pattern EXPRESSION_PATTERN =
+      Pattern.compile("to_days\\(\\s*`?\\w+`?\\s*\\)", Pattern.CASE_INSENSITIVE);
+  private final PartitionInterval interval;
+  private final int retentionDays;
+
+  /**
+   * Constructs a new {@code PartitionManager}.
+   *
+   * @param interval the {@link PartitionInterval} of new partitions
+   * @param retentionDays the number of days to keep, 0 to keep all partitions
+   */
+  PartitionManager(PartitionInterval interval, int retentionDays) {
+    this.interval = interval;
+    this.retentionDays = Math.max(0, retentionDays);
+  }
+
+  /**
+   * Returns the partition clause for a new table.
+   *
+   * @param column the date and time column to partition by
+   * @param today the current day
+   * @return the clause to append to {@code CREATE TABLE}
+   */
+  String getPartitionClause(String column, LocalDate today) {
+    List<String> partitions = new ArrayList<>();
+    LocalDate start = interval.start(today);
+    for (int i = 0; i <= interval.getAhead(); i++) {
+      partitions.add(partition(start));
+      start = interval.next(start);
+    }
+    partitions.add("PARTITION " + MAX_PARTITION + " VALUES LESS THAN MAXVALUE");
+    return " PARTITION BY RANGE (TO_DAYS(" + column + ")) (" + String.join(", ", partitions) + ")";
+  }
+
+  /**
+   * Adds the future partitions and drops the expired partitions of the given tables.
+   *
+   * <p>The statements are executed on the given connection, which must be in auto-commit mode.
+   *
+   * @param connection the {@link Connection} to use
+   * @param today the current day
+   * @param tableNames the names of the tables written by the exporter in lower case; other tables
+   *     are never changed
+   * @throws SQLException if the partitions cannot be read or changed
+   */
+  void maintain(Connection connection, LocalDate today, Set<String> tableNames)
+      throws SQLException {
+    if (tableNames.isEmpty()) {
+      return;
+    }
+    LocalDate end = interval.start(today);
+    for (int i = 0; i <= interval.getAhead(); i++) {
+      end = interval.next(end);
+    }
+    for (Map.Entry<String, List<Partition>> table :
+        loadPartitions(connection, tableNames).entrySet()) {
+      String tableName = table.getKey();
+      List<Partition> partitions = table.getValue();
+      LocalDate start =
+          partitions.isEmpty()
+              ? interval.start(today)
+              : partitions.get(partitions.size() - 1).upperBound;
+      List<String> additions = new ArrayList<>();
+      while (start.isBefore(end)) {
+        additions.add(partition(start));
+        start = interval.next(start);
+      }
+      if (!additions.isEmpty()) {
+        additions.add("PARTITION " + MAX_PARTITION + " VALUES LESS THAN MAXVALUE");
+        execute(
+            connection,
+            "ALTER TABLE "
+                + tableName
+                + " REORGANIZE PARTITION "
+                + MAX_PARTITION
+                + " INTO ("
+                + String.join(", ", additions)
+                + ")");
+        Logger.info("{} partition(s) added to table '{}'", additions.size() - 1, tableName);
+      }
+      if (retentionDays > 0) {
+        dropExpired(connection, tableName, partitions, today.minusDays(retentionDays));
+      }
+    }
+  }
+
+  private void dropExpired(
+      Connection connection, String tableName, List<Partition> partitions, LocalDate cutoff)
+      throws SQLException {
+    List<String> expired = new ArrayList<>();
+    for (Partition partition : partitions) {
+      if (!partition.upperBound.isAfter(cutoff)) {
+        expired.add(partition.name);
+      }
+    }
+    if (!expired.isEmpty()) {
+      execute(
+          connection, "ALTER TABLE " + tableName + " DROP PARTITION " + String.join(", ", expired));
+      Logger.info("{} expired partition(s) dropped from table '{}'", expired.size(), tableName);
+    }
+  }
+
+  /**
+   * Reads the partitions before {@code pmax} of the given tables that have a {@code pmax} partition
+   * and pass the checks described in the class comment.
+   */
+  private static Map<String, List<Partition>> loadPartitions(
+      Connection connection, Set<String> tableNames) throws SQLException {
+    Map<String, List<Partition>> tables = new LinkedHashMap<>();
+    Set<String> maintained = new HashSet<>();
+    Set<String> skipped = new HashSet<>();
+    try (Statement statement = connection.createStatement();
+        ResultSet resultSet =
+            statement.executeQuery(
+                "SELECT TABLE_NAME, PARTITION_NAME, PARTITION_DESCRIPTION, PARTITION_EXPRESSION"
+                    + " FROM INFORMATION_SCHEMA.PARTITIONS"
+                    + " WHERE TABLE_SCHEMA = DATABASE() AND PARTITION_METHOD = 'RANGE'"
+                    + " ORDER BY TABLE_NAME, PARTITION_ORDINAL_POSITION")) {
+      while (resultSet.next()) {
+        String tableName = resultSet.getString(1);
+        if (!tableNames.contains(tableName.toLowerCase(Locale.ROOT))
+            || skipped.contains(tableName)) {
+          continue;
+        }
+        String expression = resultSet.getString(4);
+        if (expression == null || !EXPRESSION_PATTERN.matcher(expression.trim()).matches()) {
+          skip(skipped, tableName, "partition expression " + expression);
+          continue;
+        }
+        String partitionName = resultSet.getString(2);
+        if (MAX_PARTITION.equalsIgnoreCase(partitionName)) {
+          maintained.add(tableName);
+          continue;
+        }
+        Partition partition = toPartition(partitionName, resultSet.getString(3));
+        List<Partition> partitions = tables.computeIfAbsent(tableName, k -> new ArrayList<>());
+        if (partition == null
+            || (!partitions.isEmpty()
+                && partition.start.isBefore(partitions.get(partitions.size() - 1).upperBound))) {
+          skip(skipped, tableName, "partition " + partitionName);
+          continue;
+        }
+        partitions.add(partition);
+      }
+    }
+    for (String tableName : maintained) {
+      tables.putIfAbsent(tableName, new ArrayList<>());
+    }
+    tables.keySet().retainAll(maintained);
+    tables.keySet().removeAll(skipped);
+    return tables;
+  }
+
+  /**
+   * Parses a partition created by this class.
+   *
+   * @return the {@link Partition}, or {@code null} if the name is not the first day of the
+   *     partition or the partition does not cover exactly one day or one month
+   */
+  private static Partition toPartition(String name, String description) {
+    if (name == null || description == null || !NAME_PATTERN.matcher(name).matches()) {
+      return null;
+    }
+    try {
+      LocalDate start = LocalDate.parse(name, NAME_FORMAT);
+      long toDays = Long.parseLong(description.trim());
+      LocalDate upperBound = LocalDate.ofEpochDay(toDays - TO_DAYS_EPOCH_DAY);
+      boolean plausible =
+          upperBound.equals(PartitionInterval.DAY.next(start))
+              || (start.getDayOfMonth() == 1
+                  && upperBound.equals(PartitionInterval.MONTH.next(start)));
+      return plausible ? new Partition(name, start, upperBound) : null;
+    } catch (DateTimeParseException | NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static void skip(Set<String> skipped, String tableName, String reason) {
+    if (skipped.add(tableName)) {
+      Logger.warn(
+          "table '{}' not created by the exporter ({}), skip maintenance", tableName, reason);
+    }
+  }
+
+  private String partition(LocalDate start) {
+    return "PARTITION "
+        + NAME_FORMAT.format(start)
+        + " VALUES LESS THAN (TO_DAYS('"
+        + interval.next(start)
+        + "'))";
+  }
+
+  private static void execute(Connection connection, String sql) throws SQLException {
+    Logger.debug("sql: {}", sql);
+    try (Statement statement = connection.createStatement()) {
+      statement.executeUpdate(sql);
+    }
+  }
+
+  /** A partition with the first day and the exclusive upper bound of its rows. */
+  private static final class Partition {
+    private final String name;
+    private final LocalDate start;
+    private final LocalDate upperBound;
+
+    private Partition(String name, LocalDate start, LocalDate upperBound) {
+      this.name = name;
+      this.start = start;
+      this.upperBound = upperBound;
+    }
+  }
+}
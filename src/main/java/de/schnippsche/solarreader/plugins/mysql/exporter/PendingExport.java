@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.tinylog.Logger;
+
+/**
+ * An export waiting to be written: the {@link TableBatch} objects of one transfer together with
+ * the bookkeeping data of the export pipeline.
+ *
+ * <p>While it waits in the {@link ExportQueue}, an export can be moved into an {@link OffHeapRing};
+ * the queue then holds only a small handle without batches, which is restored on removal.
+ *
+ * <p>Each export carries a completion future that is completed when all of its tables are
+ * committed, or exceptionally when the export is dropped or lost. Exports derived from it, such as
+ * the failed tables of a partial write, take the future over.
+ */
+final class PendingExport {
+  /** Spool id of an export that has not been written to the {@link ExportSpool}. */
+  static final long NOT_SPOOLED = -1;
+
+  private final List<TableBatch> batches;
+  private final long estimatedSize;
+  private final long createdNanos;
+  private final OffHeapRing ring;
+  private long spoolId;
+  private int attempts;
+  private long retryAtNanos;
+  private CompletableFuture<Void> completion = new CompletableFuture<>();
+
+  /**
+   * Constructs a new {@code PendingExport}.
+   *
+   * @param batches the batches of the export
+   * @param spoolId the id of the spool record or {@link #NOT_SPOOLED}
+   */
+  PendingExport(List<TableBatch> batches, long spoolId) {
+    this(batches, spoolId, System.nanoTime());
+  }
+
+  /**
+   * Constructs a new {@code PendingExport} that keeps the creation time of an earlier export, e.g.
+   * for the tables of an export that could not be written.
+   *
+   * @param batches the batches of the export
+   * @param spoolId the id of the spool record or {@link #NOT_SPOOLED}
+   * @param createdNanos the {@link System#nanoTime()} when the export was created
+   */
+  PendingExport(List<TableBatch> batches, long spoolId, long createdNanos) {
+    this.batches = batches;
+    this.spoolId = spoolId;
+    this.createdNanos = createdNanos;
+    this.retryAtNanos = createdNanos;
+    this.ring = null;
+    long size = 64;
+    for (TableBatch batch : batches) {
+      size += batch.estimateSize();
+    }
+    this.estimatedSize = size;
+  }
+
+  private PendingExport(
+      OffHeapRing ring,
+      long spoolId,
+      long createdNanos,
+      long estimatedSize,
+      CompletableFuture<Void> completion) {
+    this.batches = null;
+    this.completion = completion;
+    this.ring = ring;
+    this.spoolId = spoolId;
+    this.createdNanos = createdNanos;
+    this.estimatedSize = estimatedSize;
+  }
+
+  /**
+   * Moves the batches of this export into the given ring. The returned handle keeps the estimated
+   * size of this export, so the accounting of the {@link ExportQueue} does not change.
+   *
+   * @param target the {@link OffHeapRing} to store the batches in, may be {@code null}
+   * @return a handle to the stored export or this export if it stays on the heap because there is
+   *     no ring or not enough free space in it
+   */
+  PendingExport moveTo(OffHeapRing target) {
+    if (target == null || ring != null) {
+      return this;
+    }
+    try {
+      if (target.write(TableBatchCodec.encode(batches))) {
+        return new PendingExport(target, spoolId, createdNanos, estimatedSize, completion);
+      }
+    } catch (IOException e) {
+      Logger.warn("cannot encode export, keep it on the heap: {}", e.getMessage());
+    }
+    return this;
+  }
+
+  /**
+   * Restores an export moved by {@link #moveTo(OffHeapRing)}. Handles must be restored in the
+   * order in which they were created, which the {@link ExportQueue} guarantees.
+   *
+   * @return the export with its batches
+   * @throws IllegalStateException if the stored record cannot be decoded
+   */
+  PendingExport restore() {
+    if (ring == null) {
+      return this;
+    }
+    try {
+      PendingExport export =
+          new PendingExport(TableBatchCodec.decode(ring.read()), spoolId, createdNanos);
+      export.setCompletion(completion);
+      return export;
+    } catch (IOException e) {
+      throw new IllegalStateException("corrupt off-heap export record", e);
+    }
+  }
+
+  /**
+   * Checks whether the batches of this export are on the heap, i.e. whether it is not a handle to
+   * a record in an {@link OffHeapRing}.
+   *
+   * @return {@code true} if {@link #getBatches()} returns the batches
+   */
+  boolean isRestored() {
+    return ring == null;
+  }
+
+  /**
+   * Returns the batches of this export.
+   *
+   * @return the {@link TableBatch} objects, {@code null} for a handle that is not restored
+   */
+  List<TableBatch> getBatches() {
+    return batches;
+  }
+
+  /**
+   * Returns the estimated heap memory occupied by this export.
+   *
+   * @return the estimated size in bytes
+   */
+  long getEstimatedSize() {
+    return estimatedSize;
+  }
+
+  /**
+   * Returns the time when this export was created, used to measure the latency until its commit.
+   *
+   * @return the {@link System#nanoTime()} at creation
+   */
+  long getCreatedNanos() {
+    return createdNanos;
+  }
+
+  /**
+   * Returns the id of the spool record holding this export.
+   *
+   * @return the spool id or {@link #NOT_SPOOLED}
+   */
+  long getSpoolId() {
+    return spoolId;
+  }
+
+  /**
+   * Sets the id of the spool record holding this export.
+   *
+   * @param spoolId the spool id
+   */
+  void setSpoolId(long spoolId) {
+    this.spoolId = spoolId;
+  }
+
+  /**
+   * Returns the future that is completed when this export is committed.
+   *
+   * @return the completion future
+   */
+  CompletableFuture<Void> getCompletion() {
+    return completion;
+  }
+
+  /**
+   * Sets the future that is completed when this export is committed, e.g. the future of the export
+   * this one was derived from.
+   *
+   * @param completion the completion future
+   */
+  void setCompletion(CompletableFuture<Void> completion) {
+    this.completion = completion;
+  }
+
+  /**
+   * Returns how often writing this export alone has failed with an error that is not caused by an
+   * unreachable or busy database.
+   *
+   * @return the number of failed attempts
+   */
+  int getAttempts() {
+    return attempts;
+  }
+
+  /**
+   * Sets the number of failed attempts, e.g. of the export this one was derived from.
+   *
+   * @param attempts the number of failed attempts
+   */
+  void setAttempts(int attempts) {
+    this.attempts = attempts;
+  }
+
+  /**
+   * Returns the earliest time at which this export may be retried after a failed attempt.
+   *
+   * @return the {@link System#nanoTime()} of the next attempt, the creation time if it has not
+   *     failed yet
+   */
+  long getRetryAtNanos() {
+    return retryAtNanos;
+  }
+
+  /**
+   * Sets the earliest time at which this export may be retried.
+   *
+   * @param retryAtNanos the {@link System#nanoTime()} of the next attempt
+   */
+  void setRetryAtNanos(long retryAtNanos) {
+    this.retryAtNanos = retryAtNanos;
+  }
+
+  /**
+   * Checks whether this export is stored in the spool.
+   *
+   * @return {@code true} if a spool record exists
+   */
+  boolean isSpooled() {
+    return spoolId != NOT_SPOOLED;
+  }
+}
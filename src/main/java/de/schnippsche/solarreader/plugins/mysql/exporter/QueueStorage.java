@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.util.Locale;
+
+/** Defines where the exports waiting in the {@link ExportQueue} are kept. */
+public enum QueueStorage {
+  /** The exports are kept as {@link TableBatch} objects on the Java heap. */
+  HEAP,
+  /**
+   * The exports are kept in their compact binary form in an {@link OffHeapRing} outside the Java
+   * heap, so a large backlog does not increase the garbage collection work.
+   */
+  OFF_HEAP;
+
+  /**
+   * Returns the {@code QueueStorage} matching the given configuration value.
+   *
+   * @param value the configuration value, may be {@code null}
+   * @return the matching storage or {@link #HEAP} if the value is empty or unknown
+   */
+  public static QueueStorage fromString(String value) {
+    if (value != null) {
+      String normalized = value.trim().replace("_", "").toUpperCase(Locale.ROOT);
+      for (QueueStorage storage : values()) {
+        if (storage.name().replace("_", "").equals(normalized)) {
+          return storage;
+        }
+      }
+    }
+    return HEAP;
+  }
+}
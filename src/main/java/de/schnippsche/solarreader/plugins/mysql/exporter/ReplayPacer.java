@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+/**
+ * Decides in which rounds of the consumer exports are replayed from the spool.
+ *
+ * <p>The spool must not wait until the queue runs empty, because with a steady stream of new
+ * exports that rarely happens. A replay is therefore due whenever fewer entries than the low-water
+ * mark are queued, and otherwise at least every {@code interval} rounds, so the spool is drained
+ * while the live exports are still written in most rounds.
+ */
+final class ReplayPacer {
+  private final int interval;
+  private int rounds;
+
+  /**
+   * Constructs a new {@code ReplayPacer}.
+   *
+   * @param interval the maximum number of rounds between two replays while the queue is busy
+   */
+  ReplayPacer(int interval) {
+    this.interval = Math.max(1, interval);
+  }
+
+  /**
+   * Counts a round and checks whether exports should be replayed in it.
+   *
+   * @param queueSize the number of entries still queued
+   * @param lowWaterMark the queue size below which every round replays
+   * @return {@code true} if the round should include replayed exports
+   */
+  boolean isDue(int queueSize, int lowWaterMark) {
+    rounds++;
+    if (queueSize < lowWaterMark || rounds >= interval) {
+      rounds = 0;
+      return true;
+    }
+    return false;
+  }
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import org.tinylog.Logger;
+
+/**
+ * An in-memory catalog of the tables and columns of the target database, used to create missing
+ * tables and to add missing columns before rows are inserted.
+ *
+ * <p>The catalog is loaded once from {@code INFORMATION_SCHEMA.COLUMNS}. Every {@link TableSchema}
+ * that has been checked against it is remembered, so in the steady state {@link
+ * #isVerified(TableSchema)} is a hash lookup and no statement is sent to the server. The catalog is
+ * only reloaded after {@link #invalidate()}, which is called when an insert fails because a table
+ * or a column is missing.
+ *
+ * <p>Names are compared case-insensitively, matching the behavior of MySQL for column names and of
+ * the common {@code lower_case_table_names} settings for table names.
+ *
+ * <p>A column is only created once it has a value, because its type is taken from the values. As
+ * long as a column contains only null values and does not exist yet, {@link #ensure} reports it as
+ * missing and the rows are written without it.
+ *
+ * <p>With a {@link PartitionManager}, new tables that have a date and time column are created with
+ * {@code RANGE} partitions on that column.
+ *
+ * <p>With a unique key, every table that has all key columns gets a unique index {@value
+ * #UNIQUE_KEY_NAME} on them: new tables when they are created, existing tables when they are
+ * checked for the first time, unless they already have a unique index within the key columns. The
+ * index is what makes {@link UpsertMode#IGNORE} and {@link UpsertMode#UPDATE} detect duplicates. If
+ * an existing table already contains duplicates, the index cannot be added; this is logged and the
+ * rows are still written. A partitioned table needs the partition column in every unique index, so
+ * a new table whose key does not contain its date and time column is created without partitions.
+ *
+ * <p>The catalog is guarded by a {@link ReentrantLock} instead of {@code synchronized}, so a virtual
+ * thread waiting for a DDL statement does not pin its carrier thread.
+ */
+final class SchemaCatalog {
+  private static final int ER_BAD_FIELD_ERROR = 1054;
+  private static final int ER_NO_SUCH_TABLE = 1146;
+  private static final int ER_DUP_ENTRY = 1062;
+  private static final int ER_UNIQUE_KEY_NEED_ALL_FIELDS_IN_PF = 1503;
+  private static final String UNIQUE_KEY_NAME = "uk_solarreader";
+  private final Set<TableSchema> verified = ConcurrentHashMap.newKeySet();
+  private final Map<String, Set<String>> tables = new HashMap<>();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Set<String> uniqueKeyChecked = new HashSet<>();
+  private final PartitionManager partitionManager;
+  private final List<String> uniqueKey;
+  private boolean loaded;
+
+  /**
+   * Constructs a new {@code SchemaCatalog}.
+   *
+   * @param partitionManager the {@link PartitionManager} for new tables, or {@code null} to create
+   *     tables without partitions
+   * @param uniqueKey the columns of the unique index to create, or an empty list for none
+   */
+  SchemaCatalog(PartitionManager partitionManager, List<String> uniqueKey) {
+    this.partitionManager = partitionManager;
+    this.uniqueKey = uniqueKey;
+  }
+
+  /**
+   * Checks whether a schema is known to exist in the database.
+   *
+   * @param schema the {@link TableSchema} to check
+   * @return {@code true} if the table and all columns are known to exist
+   */
+  boolean isVerified(TableSchema schema) {
+    return verified.contains(schema);
+  }
+
+  /**
+   * Creates the table of the given schema or adds its missing columns. Columns without a type and
+   * columns of type {@link ParameterType#OBJECT}, whose values have no common SQL type, are not
+   * created; a table is not created as long as none of its columns has a type.
+   *
+   * <p>The statements are executed on the given connection, which must be in auto-commit mode
+   * because DDL statements implicitly commit the current transaction.
+   *
+   * @param connection the {@link Connection} to use
+   * @param schema the {@link TableSchema} to ensure
+   * @param types the {@link ParameterType} of every column, used to derive the column definitions,
+   *     {@code null} for a column that contains only null values
+   * @return the names of the columns that do not exist because they have no column definition
+   * @throws SQLException if the catalog cannot be loaded or a DDL statement fails
+   */
+  List<String> ensure(Connection connection, TableSchema schema, ParameterType[] types)
+      throws SQLException {
+    lock.lock();
+    try {
+      return ensureLocked(connection, schema, types);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private List<String> ensureLocked(
+      Connection connection, TableSchema schema, ParameterType[] types) throws SQLException {
+    if (verified.contains(schema)) {
+      return Collections.emptyList();
+    }
+    if (!loaded) {
+      load(connection);
+    }
+    String key = normalize(schema.getTableName());
+    Set<String> columns = tables.get(key);
+    List<String> names = schema.getColumnNames();
+    List<String> untyped = new ArrayList<>();
+    for (int i = 0; i < names.size(); i++) {
+      if (!hasDefinition(types[i])
+          && (columns == null || !columns.contains(normalize(names.get(i))))) {
+        if (types[i] != null) {
+          Logger.warn(
+              "column '{}' of table '{}' has values of mixed types, not created",
+              names.get(i),
+              schema.getTableName());
+        }
+        untyped.add(names.get(i));
+      }
+    }
+    if (untyped.size() == names.size()) {
+      return untyped;
+    }
+    if (columns == null) {
+      List<String> definitions = new ArrayList<>(names.size());
+      String partitionColumn = null;
+      for (int i = 0; i < names.size(); i++) {
+        if (!hasDefinition(types[i])) {
+          continue;
+        }
+        definitions.add(names.get(i) + " " + types[i].getColumnDefinition());
+        if (partitionColumn == null && types[i] == ParameterType.TIMESTAMP) {
+          partitionColumn = names.get(i);
+        }
+      }
+      List<String> created = new ArrayList<>(names);
+      created.removeAll(untyped);
+      boolean withUniqueKey = containsUniqueKey(created);
+      if (withUniqueKey) {
+        definitions.add(
+            "UNIQUE KEY " + UNIQUE_KEY_NAME + " (" + String.join(", ", uniqueKey) + ")");
+        if (partitionManager != null
+            && partitionColumn != null
+            && !containsIgnoreCase(uniqueKey, partitionColumn)) {
+          Logger.warn(
+              "unique key of table '{}' does not contain '{}', create without partitions",
+              schema.getTableName(),
+              partitionColumn);
+          partitionColumn = null;
+        }
+      }
+      execute(
+          connection,
+          "CREATE TABLE IF NOT EXISTS "
+              + schema.getTableName()
+              + " ("
+              + String.join(", ", definitions)
+              + ")"
+              + (partitionManager != null && partitionColumn != null
+                  ? partitionManager.getPartitionClause(partitionColumn, LocalDate.now())
+                  : ""));
+      Logger.info("table '{}' created", schema.getTableName());
+      columns = new HashSet<>();
+      tables.put(key, columns);
+      if (withUniqueKey) {
+        uniqueKeyChecked.add(key);
+      }
+    } else {
+      List<String> additions = new ArrayList<>();
+      for (int i = 0; i < names.size(); i++) {
+        if (hasDefinition(types[i]) && !columns.contains(normalize(names.get(i)))) {
+          additions.add("ADD COLUMN " + names.get(i) + " " + types[i].getColumnDefinition());
+        }
+      }
+      if (!additions.isEmpty()) {
+        execute(
+            connection,
+            "ALTER TABLE " + schema.getTableName() + " " + String.join(", ", additions));
+        Logger.info("{} column(s) added to table '{}'", additions.size(), schema.getTableName());
+      }
+    }
+    for (String name : names) {
+      if (!untyped.contains(name)) {
+        columns.add(normalize(name));
+      }
+    }
+    if (!uniqueKey.isEmpty() && !uniqueKeyChecked.contains(key) && containsUniqueKey(columns)) {
+      ensureUniqueKey(connection, schema.getTableName());
+      uniqueKeyChecked.add(key);
+    }
+    if (untyped.isEmpty()) {
+      verified.add(schema);
+    }
+    return untyped;
+  }
+
+  /**
+   * Adds the unique index on the key columns to an existing table, unless the table already has a
+   * unique index whose columns all belong to the key.
+   *
+   * @param connection the {@link Connection} to use
+   * @param tableName the name of the table
+   * @throws SQLException if the existing indexes cannot be read or the index cannot be added for
+   *     another reason than duplicate rows or partitioning
+   */
+  private void ensureUniqueKey(Connection connection, String tableName) throws SQLException {
+    Map<String, Boolean> uniqueIndexes = new HashMap<>();
+    try (PreparedStatement statement =
+        connection.prepareStatement(
+            "SELECT INDEX_NAME, COLUMN_NAME FROM INFORMATION_SCHEMA.STATISTICS"
+                + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND NON_UNIQUE = 0")) {
+      statement.setString(1, tableName);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          boolean inKey = containsIgnoreCase(uniqueKey, resultSet.getString(2));
+          uniqueIndexes.merge(resultSet.getString(1), inKey, Boolean::logicalAnd);
+        }
+      }
+    }
+    if (uniqueIndexes.containsValue(Boolean.TRUE)) {
+      return;
+    }
+    try {
+      execute(
+          connection,
+          "ALTER TABLE "
+              + tableName
+              + " ADD UNIQUE KEY "
+              + UNIQUE_KEY_NAME
+              + " ("
+              + String.join(", ", uniqueKey)
+              + ")");
+      Logger.info("unique key added to table '{}'", tableName);
+    } catch (SQLException e) {
+      if (e.getErrorCode() != ER_DUP_ENTRY
+          && e.getErrorCode() != ER_UNIQUE_KEY_NEED_ALL_FIELDS_IN_PF) {
+        throw e;
+      }
+      Logger.warn("cannot add unique key to table '{}': {}", tableName, e.getMessage());
+    }
+  }
+
+  private boolean containsUniqueKey(Collection<String> columns) {
+    if (uniqueKey.isEmpty()) {
+      return false;
+    }
+    for (String keyColumn : uniqueKey) {
+      if (!containsIgnoreCase(columns, keyColumn)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean hasDefinition(ParameterType type) {
+    return type != null && type.getColumnDefinition() != null;
+  }
+
+  private static boolean containsIgnoreCase(Collection<String> names, String name) {
+    for (String candidate : names) {
+      if (candidate.equalsIgnoreCase(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Discards the catalog, so that it is reloaded with the next call of {@link #ensure}. */
+  void invalidate() {
+    lock.lock();
+    try {
+      verified.clear();
+      tables.clear();
+      uniqueKeyChecked.clear();
+      loaded = false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Checks whether an exception reports a missing table or column.
+   *
+   * @param e the {@link SQLException} to check
+   * @return {@code true} if the table or one of the columns does not exist
+   */
+  static boolean isMissingSchema(SQLException e) {
+    for (Throwable t = e; t != null; t = t.getCause()) {
+      if (t instanceof SQLException) {
+        SQLException sqlException = (SQLException) t;
+        int code = sqlException.getErrorCode();
+        String sqlState = sqlException.getSQLState();
+        if (code == ER_NO_SUCH_TABLE
+            || code == ER_BAD_FIELD_ERROR
+            || "42S02".equals(sqlState)
+            || "42S22".equals(sqlState)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private void load(Connection connection) throws SQLException {
+    tables.clear();
+    try (Statement statement = connection.createStatement();
+        ResultSet resultSet =
+            statement.executeQuery(
+                "SELECT TABLE_NAME, COLUMN_NAME FROM INFORMATION_SCHEMA.COLUMNS"
+                    + " WHERE TABLE_SCHEMA = DATABASE()")) {
+      while (resultSet.next()) {
+        tables
+            .computeIfAbsent(normalize(resultSet.getString(1)), k -> new HashSet<>())
+            .add(normalize(resultSet.getString(2)));
+      }
+    }
+    loaded = true;
+    Logger.debug("schema catalog loaded with {} table(s)", tables.size());
+  }
+
+  private void execute(Connection connection, String sql) throws SQLException {
+    Logger.debug("sql: {}", sql);
+    try (Statement statement = connection.createStatement()) {
+      statement.executeUpdate(sql);
+    }
+  }
+
+  private static String normalize(String name) {
+    return name.toLowerCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import de.schnippsche.solarreader.backend.util.Setting;
+import java.util.Locale;
+import org.tinylog.Logger;
+
+/**
+ * Utility methods for reading typed values from a {@link Setting}.
+ *
+ * <p>All configuration values entered in the exporter dialog are stored as strings. The methods in
+ * this class parse them into the requested type and fall back to the given default value if the
+ * entry is missing, blank or cannot be parsed.
+ */
+final class SettingValues {
+
+  private SettingValues() {}
+
+  /**
+   * Reads an integer configuration value.
+   *
+   * @param setting the {@link Setting} to read from
+   * @param key the configuration key
+   * @param defaultValue the value returned if the entry is missing or invalid
+   * @return the configured value or {@code defaultValue}
+   */
+  static int getInt(Setting setting, String key, int defaultValue) {
+    String value = getString(setting, key, null);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      Logger.warn("invalid value '{}' for setting '{}', use {}", value, key, defaultValue);
+      return defaultValue;
+    }
+  }
+
+  /**
+   * Reads a boolean configuration value. The values {@code true}, {@code on}, {@code yes} and
+   * {@code 1} are treated as {@code true}, every other non-blank value as {@code false}.
+   *
+   * @param setting the {@link Setting} to read from
+   * @param key the configuration key
+   * @param defaultValue the value returned if the entry is missing or blank
+   * @return the configured value or {@code defaultValue}
+   */
+  static boolean getBoolean(Setting setting, String key, boolean defaultValue) {
+    String value = getString(setting, key, null);
+    if (value == null) {
+      return defaultValue;
+    }
+    switch (value.toLowerCase(Locale.ROOT)) {
+      case "true":
+      case "on":
+      case "yes":
+      case "1":
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Reads a trimmed string configuration value.
+   *
+   * @param setting the {@link Setting} to read from
+   * @param key the configuration key
+   * @param defaultValue the value returned if the entry is missing or blank
+   * @return the configured value or {@code defaultValue}
+   */
+  static String getString(Setting setting, String key, String defaultValue) {
+    String value = setting.getConfigurationValueAsString(key, defaultValue);
+    if (value == null || value.isBlank()) {
+      return defaultValue;
+    }
+    return value.trim();
+  }
+}
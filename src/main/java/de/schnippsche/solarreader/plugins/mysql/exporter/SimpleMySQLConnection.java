@@ -22,19 +22,24 @@
 package de.schnippsche.solarreader.plugins.mysql.exporter;
 
 import de.schnippsche.solarreader.backend.table.Table;
-import de.schnippsche.solarreader.backend.table.TableCell;
-import de.schnippsche.solarreader.backend.table.TableColumn;
-import de.schnippsche.solarreader.backend.table.TableRow;
 import de.schnippsche.solarreader.backend.util.Setting;
+import de.schnippsche.solarreader.plugins.mysql.exporter.MySQLConnectionPool.PooledConnection;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLWarning;
 import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import org.tinylog.Logger;
 
 /**
@@ -49,18 +54,95 @@ import org.tinylog.Logger;
  * </ul>
  *
  * <p>The connection details (host, port, user, password, database name) are configured via a {@link
- * Setting} object provided during construction.
+ * Setting} object provided during construction. Physical connections are kept in a {@link
+ * MySQLConnectionPool} and reused across export cycles until {@link #close()} is called.
  *
  * @see MySQLConnection
  * @see Setting
  * @see Table
  */
 public class SimpleMySQLConnection implements MySQLConnection {
+  /** Configuration key for the maximum number of pooled connections. */
+  public static final String POOL_SIZE = "poolsize";
+
+  /** Configuration key for the {@link WriteMode}. */
+  public static final String WRITE_MODE = "writemode";
+
+  /** Configuration key for the number of prepared statements cached per pooled connection. */
+  public static final String STATEMENT_CACHE_SIZE = "statementcache";
+
+  /** Configuration key for the automatic creation of missing tables and columns. */
+  public static final String AUTO_CREATE = "autocreate";
+
+  /**
+   * Configuration key for the number of rows of a table from which {@code LOAD DATA LOCAL INFILE}
+   * is used instead of {@code INSERT}; 0 switches the bulk load off.
+   */
+  public static final String LOAD_DATA_THRESHOLD = "loaddatathreshold";
+
+  /** Configuration key for the {@link PartitionInterval} of created tables. */
+  public static final String PARTITIONING = "partitioning";
+
+  /** Configuration key for the number of days after which partitions are dropped; 0 keeps all. */
+  public static final String RETENTION = "retention";
+
+  /** Configuration key for the {@link UpsertMode}. */
+  public static final String UPSERT = "upsert";
+
+  /** Configuration key for the comma-separated columns of the natural key, e.g. device, time. */
+  public static final String UPSERT_KEY = "upsertkey";
+
+  /** Configuration key for the creation of a unique index on the natural key. */
+  public static final String UNIQUE_INDEX = "uniqueindex";
+
+  /** Configuration key for the compression of the client/server protocol. */
+  public static final String COMPRESSION = "compression";
+
+  /** Configuration key for the TLS mode: disable, trust, verify-ca or verify-full. */
+  public static final String SSL_MODE = "sslmode";
+
+  /** Configuration key for the connect timeout in seconds. */
+  public static final String CONNECT_TIMEOUT = "connecttimeout";
+
+  /** Configuration key for the socket read timeout in seconds; 0 waits without limit. */
+  public static final String SOCKET_TIMEOUT = "sockettimeout";
+
+  /**
+   * Configuration key for additional driver properties, separated by {@code &} or {@code ;}, e.g.
+   * {@code tcpKeepIdle=60&connectionAttributes=site:north}. They override the options set by the
+   * exporter.
+   */
+  public static final String URL_PROPERTIES = "urlproperties";
+
+  static final int DEFAULT_POOL_SIZE = 2;
+  static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+  static final int DEFAULT_LOAD_DATA_THRESHOLD = 1000;
+  static final int DEFAULT_CONNECT_TIMEOUT_SECONDS = 5;
+  private static final long IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+  private static final long MAX_LIFETIME_MILLIS = TimeUnit.MINUTES.toMillis(30);
+  private static final long BORROW_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+  private static final long DEFAULT_MAX_ALLOWED_PACKET = 1024L * 1024L;
+  private static final int MAX_PARAMETERS = 65535;
+  private static final int ER_NOT_ALLOWED_COMMAND = 1148;
+  private static final int ER_DUP_ENTRY = 1062;
+  private static final int ER_CLIENT_LOCAL_FILES_DISABLED = 3948;
   private final String host;
   private final int port;
   private final String user;
   private final String password;
   private final String dbName;
+  private final MySQLConnectionPool pool;
+  private final WriteMode writeMode;
+  private final InsertStatementCache insertStatements;
+  private final SchemaCatalog schemaCatalog;
+  private final PartitionManager partitionManager;
+  private final Set<String> writtenTables = ConcurrentHashMap.newKeySet();
+  private final int loadDataThreshold;
+  private final int connectTimeoutSeconds;
+  private final String url;
+  private volatile boolean loadDataAllowed;
+  private volatile long maxAllowedPacket;
+  private volatile ExportMetrics metrics;
 
   /**
    * Constructs a {@code SimpleMySQLConnection} using the provided {@link Setting}.
@@ -73,6 +155,50 @@ public class SimpleMySQLConnection implements MySQLConnection {
     this.user = setting.getOptionalUser();
     this.password = setting.getOptionalPassword();
     this.dbName = setting.getConfigurationValueAsString("dbname", "solarreader");
+    this.writeMode = WriteMode.fromString(SettingValues.getString(setting, WRITE_MODE, null));
+    List<String> upsertKey = parseColumns(SettingValues.getString(setting, UPSERT_KEY, null));
+    this.insertStatements =
+        new InsertStatementCache(
+            UpsertMode.fromString(SettingValues.getString(setting, UPSERT, null)), upsertKey);
+    PartitionInterval partitionInterval =
+        PartitionInterval.fromString(SettingValues.getString(setting, PARTITIONING, null));
+    this.partitionManager =
+        partitionInterval != PartitionInterval.OFF
+            ? new PartitionManager(partitionInterval, SettingValues.getInt(setting, RETENTION, 0))
+            : null;
+    this.schemaCatalog =
+        SettingValues.getBoolean(setting, AUTO_CREATE, false)
+            ? new SchemaCatalog(
+                partitionManager,
+                SettingValues.getBoolean(setting, UNIQUE_INDEX, false)
+                    ? upsertKey
+                    : Collections.emptyList())
+            : null;
+    this.loadDataThreshold =
+        Math.max(
+            0, SettingValues.getInt(setting, LOAD_DATA_THRESHOLD, DEFAULT_LOAD_DATA_THRESHOLD));
+    this.loadDataAllowed = loadDataThreshold > 0;
+    this.connectTimeoutSeconds =
+        Math.max(
+            1, SettingValues.getInt(setting, CONNECT_TIMEOUT, DEFAULT_CONNECT_TIMEOUT_SECONDS));
+    this.url = buildUrl(setting);
+    this.pool =
+        new MySQLConnectionPool(
+            this::createConnection,
+            SettingValues.getInt(setting, POOL_SIZE, DEFAULT_POOL_SIZE),
+            IDLE_TIMEOUT_MILLIS,
+            MAX_LIFETIME_MILLIS,
+            BORROW_TIMEOUT_MILLIS,
+            SettingValues.getInt(setting, STATEMENT_CACHE_SIZE, DEFAULT_STATEMENT_CACHE_SIZE));
+  }
+
+  /**
+   * Returns the JDBC URL built from the setting, including the driver properties.
+   *
+   * @return the JDBC URL used for new connections
+   */
+  String getUrl() {
+    return url;
   }
 
   /**
@@ -84,14 +210,20 @@ public class SimpleMySQLConnection implements MySQLConnection {
    * @throws SQLException if an error occurs while querying the database
    */
   public String getDatabaseVersion() throws SQLException {
-    try (Connection connection = createConnection();
-        Statement statement = connection.createStatement();
+    PooledConnection pooledConnection = pool.borrow();
+    boolean broken = false;
+    try (Statement statement = pooledConnection.getConnection().createStatement();
         ResultSet resultSet = statement.executeQuery("SELECT VERSION(), @@version_comment")) {
       if (resultSet.next()) {
         String version = resultSet.getString(1);
         String database = resultSet.getString(2);
         return database + " " + version;
       }
+    } catch (SQLException e) {
+      broken = isConnectionError(e);
+      throw e;
+    } finally {
+      pool.release(pooledConnection, broken);
     }
     return "unknown";
   }
@@ -99,62 +231,482 @@ public class SimpleMySQLConnection implements MySQLConnection {
   /**
    * Writes the content of a {@link Table} to the database.
    *
-   * <p>This method generates an SQL {@code INSERT} statement based on the table structure and data,
-   * and executes it using a batch process.
+   * <p>The SQL {@code INSERT} statement is built once per table structure and then taken from a
+   * cache. The prepared statement stays open on the pooled connection, so recurring inserts are
+   * only executed, not prepared again.
+   *
+   * <p>Depending on the configured {@link WriteMode}, the rows are either sent as a JDBC batch, which
+   * the driver transmits with the MariaDB bulk protocol where available, or folded into multi-row
+   * {@code INSERT} statements that fit into the server's {@code max_allowed_packet}. Tables with
+   * at least as many rows as the configured threshold, e.g. when a backlog is replayed, are
+   * streamed with {@code LOAD DATA LOCAL INFILE} instead.
    *
    * @param table the {@link Table} object containing data to be written
    * @throws IOException if an error occurs during the database write operation
    */
   public void writeTable(Table table) throws IOException {
-    String sql = generateInsertStatement(table);
-    Logger.debug("sql: " + sql);
-    try (Connection connection = createConnection();
-        PreparedStatement pstmt = connection.prepareStatement(sql)) {
-      List<TableRow> rows = table.getRows();
-      for (TableRow row : rows) {
-        List<TableCell> cells = row.getCells();
-        for (int i = 0; i < cells.size(); i++) {
-          pstmt.setObject(i + 1, cells.get(i).getCalculated());
+    writeBatches(Collections.singletonList(TableBatch.of(table)));
+  }
+
+  /**
+   * Writes several batches over one pooled connection inside a single transaction.
+   *
+   * <p>All batches are committed together; if one of them fails, the whole transaction is rolled
+   * back so that readers never see a partially written snapshot.
+   *
+   * <p>If automatic table creation is enabled, missing tables and columns are created before the
+   * transaction starts. When the insert still fails because a table or column is missing, e.g.
+   * after the table was changed outside of the exporter, the schema catalog is reloaded and the
+   * transaction is repeated once.
+   *
+   * @param batches the {@link TableBatch} objects to write
+   * @throws IOException if an error occurs during the database write operation
+   */
+  @Override
+  public void writeBatches(List<TableBatch> batches) throws IOException {
+    PooledConnection pooledConnection;
+    long acquireStart = System.nanoTime();
+    try {
+      pooledConnection = pool.borrow();
+    } catch (SQLException e) {
+      recordError(e);
+      throw new IOException(e.getMessage(), e);
+    }
+    ExportMetrics currentMetrics = metrics;
+    if (currentMetrics != null) {
+      currentMetrics.recordConnectionAcquire(System.nanoTime() - acquireStart);
+    }
+    boolean broken = false;
+    Connection connection = pooledConnection.getConnection();
+    try {
+      boolean retry = schemaCatalog != null;
+      while (true) {
+        try {
+          writeTransaction(pooledConnection, batches);
+          return;
+        } catch (SQLException e) {
+          recordError(e);
+          broken = isConnectionError(e) || !rollback(connection);
+          if (!broken) {
+            pooledConnection.clearStatements();
+          }
+          if (broken || !retry || !SchemaCatalog.isMissingSchema(e)) {
+            throw new IOException(e.getMessage(), e);
+          }
+          Logger.info("missing table or column, reload schema catalog: {}", e.getMessage());
+          schemaCatalog.invalidate();
+          retry = false;
         }
-        pstmt.addBatch();
       }
-      pstmt.executeBatch();
+    } finally {
+      broken = broken || !restoreAutoCommit(connection);
+      pool.release(pooledConnection, broken);
+    }
+  }
+
+  /**
+   * Adds future partitions and drops expired partitions if partitioning is configured. Only the
+   * tables written by this connection since it was created are maintained.
+   *
+   * @throws IOException if the partitions cannot be changed
+   */
+  @Override
+  public void maintain() throws IOException {
+    if (partitionManager == null) {
+      return;
+    }
+    PooledConnection pooledConnection = null;
+    boolean broken = false;
+    try {
+      pooledConnection = pool.borrow();
+      partitionManager.maintain(pooledConnection.getConnection(), LocalDate.now(), writtenTables);
+    } catch (SQLException e) {
+      recordError(e);
+      broken = isConnectionError(e);
+      throw new IOException(e.getMessage(), e);
+    } finally {
+      if (pooledConnection != null) {
+        pool.release(pooledConnection, broken);
+      }
+    }
+  }
+
+  @Override
+  public void setMetrics(ExportMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Closes all pooled connections. Connections currently in use are closed as soon as the running
+   * operation has finished.
+   */
+  @Override
+  public void close() {
+    pool.close();
+    insertStatements.clear();
+  }
+
+  /**
+   * Writes the batches in one transaction.
+   *
+   * <p>With automatic table creation, the schemas that are not yet verified are checked first. This
+   * happens in auto-commit mode, because DDL statements would implicitly commit the transaction.
+   * Columns that do not exist yet and contain only null values are left out of the write.
+   *
+   * @param pooledConnection the {@link PooledConnection} to use
+   * @param tableBatches the {@link TableBatch} objects to write
+   * @throws SQLException if a statement or the commit fails
+   */
+  private void writeTransaction(PooledConnection pooledConnection, List<TableBatch> tableBatches)
+      throws SQLException {
+    Connection connection = pooledConnection.getConnection();
+    List<TableBatch> batches = tableBatches;
+    if (schemaCatalog != null) {
+      batches = new ArrayList<>(tableBatches.size());
+      for (TableBatch batch : tableBatches) {
+        TableSchema schema = batch.getSchema();
+        if (!schemaCatalog.isVerified(schema)) {
+          connection.setAutoCommit(true);
+          List<String> untyped =
+              schemaCatalog.ensure(connection, schema, batch.getParameterTypes());
+          if (untyped.size() == schema.getColumnCount()) {
+            Logger.debug("skip table '{}' without values", schema.getTableName());
+            continue;
+          }
+          batch = batch.withoutColumns(untyped);
+        }
+        batches.add(batch);
+      }
+    }
+    connection.setAutoCommit(false);
+    ExportMetrics currentMetrics = metrics;
+    for (TableBatch batch : batches) {
+      long start = System.nanoTime();
+      if (loadDataAllowed
+          && batch.getRowCount() >= loadDataThreshold
+          && writeLoadData(connection, batch)) {
+        Logger.debug("bulk load of {} rows finished", batch.getRowCount());
+      } else if (writeMode == WriteMode.MULTIROW) {
+        writeMultiRow(pooledConnection, batch);
+      } else {
+        writeBatch(pooledConnection, batch);
+      }
+      if (currentMetrics != null) {
+        currentMetrics.recordTableWrite(
+            batch.getSchema().getTableName(), System.nanoTime() - start);
+      }
+    }
+    connection.commit();
+    if (partitionManager != null) {
+      for (TableBatch batch : batches) {
+        writtenTables.add(batch.getSchema().getTableName().toLowerCase(Locale.ROOT));
+      }
+    }
+  }
+
+  /**
+   * Streams all rows of the batch with {@code LOAD DATA LOCAL INFILE}.
+   *
+   * <p>The rows are generated as tab-separated text while the driver sends them, see {@link
+   * LoadDataStream}. If the server or the driver does not allow local files, the bulk load is
+   * switched off for this connection and the rows are written with {@code INSERT} instead; the
+   * rejected statement does not change the running transaction. Statements that update existing
+   * rows have no bulk load and are always written with {@code INSERT}.
+   *
+   * @param connection the {@link Connection} to use
+   * @param batch the {@link TableBatch} to write
+   * @return {@code true} if the rows were loaded, {@code false} if the bulk load is not allowed
+   * @throws SQLException if the bulk load fails for another reason
+   */
+  private boolean writeLoadData(Connection connection, TableBatch batch) throws SQLException {
+    InsertStatement insertStatement = insertStatements.get(batch.getSchema());
+    String sql = insertStatement.getLoadDataSql();
+    if (sql == null) {
+      return false;
+    }
+    Logger.debug("bulk load of {} rows: {}", batch.getRowCount(), sql);
+    try (Statement statement = connection.createStatement()) {
+      statement
+          .unwrap(org.mariadb.jdbc.Statement.class)
+          .setLocalInfileInputStream(new LoadDataStream(batch));
+      statement.execute(sql);
+      checkLoadDataWarnings(statement.getWarnings(), insertStatement.isIgnoringDuplicates());
+      return true;
     } catch (SQLException e) {
-      throw new IOException(e.getMessage());
+      if (!isLoadDataRejected(e)) {
+        throw e;
+      }
+      loadDataAllowed = false;
+      Logger.warn("LOAD DATA LOCAL INFILE not allowed, use INSERT: {}", e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Fails the bulk load if the server reported a warning, e.g. a truncated or invalid value, which
+   * {@code LOAD DATA} only reports as a warning where an {@code INSERT} fails. Duplicate keys are
+   * only expected if the {@link UpsertMode} skips them; otherwise they fail the bulk load like an
+   * {@code INSERT}, because {@code LOAD DATA LOCAL} skips them even without {@code IGNORE}.
+   *
+   * @param warning the first {@link SQLWarning} of the statement, may be {@code null}
+   * @param ignoringDuplicates whether duplicate keys are skipped on purpose
+   * @throws SQLException if a warning other than an expected duplicate key was reported
+   */
+  static void checkLoadDataWarnings(SQLWarning warning, boolean ignoringDuplicates)
+      throws SQLException {
+    for (SQLWarning w = warning; w != null; w = w.getNextWarning()) {
+      if (w.getErrorCode() == ER_DUP_ENTRY) {
+        if (!ignoringDuplicates) {
+          throw new SQLException(
+              "LOAD DATA duplicate key: " + w.getMessage(), "23000", ER_DUP_ENTRY, w);
+        }
+      } else {
+        throw new SQLException(
+            "LOAD DATA warning: " + w.getMessage(), "22000", w.getErrorCode(), w);
+      }
     }
   }
 
   /**
-   * Generates an SQL {@code INSERT} statement for a given {@link Table}.
+   * Checks whether the given exception rejects {@code LOAD DATA LOCAL INFILE}, e.g. because of
+   * {@code local_infile=OFF} on the server.
    *
-   * @param table the {@link Table} object representing the table structure and data
-   * @return a {@link String} containing the generated SQL statement
+   * @param e the {@link SQLException} to check
+   * @return {@code true} if local files are not allowed
    */
-  private String generateInsertStatement(Table table) {
-    String columnNames =
-        table.getColumns().stream()
-            .map(TableColumn::getColumnName)
-            .collect(Collectors.joining(", "));
-    String placeholders =
-        table.getColumns().stream().map(column -> "?").collect(Collectors.joining(", "));
+  private boolean isLoadDataRejected(SQLException e) {
+    return e.getErrorCode() == ER_NOT_ALLOWED_COMMAND
+        || e.getErrorCode() == ER_CLIENT_LOCAL_FILES_DISABLED;
+  }
 
-    return String.format(
-        "INSERT INTO %s (%s) VALUES (%s);", table.getTableName(), columnNames, placeholders);
+  /**
+   * Writes all rows of the batch with a single JDBC batch.
+   *
+   * @param pooledConnection the {@link PooledConnection} to use
+   * @param batch the {@link TableBatch} to write
+   * @throws SQLException if the batch fails
+   */
+  private void writeBatch(PooledConnection pooledConnection, TableBatch batch) throws SQLException {
+    String sql = insertStatements.get(batch.getSchema()).getSql();
+    Logger.debug("sql: {}", sql);
+    PreparedStatement pstmt = pooledConnection.prepareStatement(sql);
+    for (int row = 0; row < batch.getRowCount(); row++) {
+      batch.bindRow(pstmt, row, 1);
+      pstmt.addBatch();
+    }
+    pstmt.executeBatch();
+  }
+
+  /**
+   * Writes the rows of the batch as multi-row {@code INSERT} statements.
+   *
+   * <p>The rows are split into chunks so that neither the estimated statement size exceeds the
+   * usable part of {@code max_allowed_packet} nor the number of parameters exceeds the limit of a
+   * prepared statement.
+   *
+   * @param pooledConnection the {@link PooledConnection} to use
+   * @param batch the {@link TableBatch} to write
+   * @throws SQLException if one of the statements fails
+   */
+  private void writeMultiRow(PooledConnection pooledConnection, TableBatch batch)
+      throws SQLException {
+    InsertStatement statement = insertStatements.get(batch.getSchema());
+    int rowCount = batch.getRowCount();
+    int maxRowsPerStatement = Math.max(1, MAX_PARAMETERS / statement.getParameterCount());
+    long packetBudget = getMaxAllowedPacket(pooledConnection.getConnection()) * 3 / 4;
+    long headerSize = statement.getPrefix().length() + statement.getSuffix().length();
+    int start = 0;
+    while (start < rowCount) {
+      int end = start;
+      long statementSize = headerSize;
+      while (end < rowCount && end - start < maxRowsPerStatement) {
+        long rowSize = batch.estimateStatementSize(end);
+        if (end > start && statementSize + rowSize > packetBudget) {
+          break;
+        }
+        statementSize += rowSize;
+        end++;
+      }
+      executeMultiRow(pooledConnection, statement, batch, start, end);
+      start = end;
+    }
+  }
+
+  private void executeMultiRow(
+      PooledConnection pooledConnection,
+      InsertStatement statement,
+      TableBatch batch,
+      int start,
+      int end)
+      throws SQLException {
+    String sql = statement.getSql(end - start);
+    Logger.debug(
+        "multi-row insert with {} rows into '{}'",
+        end - start,
+        statement.getSchema().getTableName());
+    PreparedStatement pstmt = pooledConnection.prepareStatement(sql);
+    int index = 1;
+    for (int row = start; row < end; row++) {
+      index = batch.bindRow(pstmt, row, index);
+    }
+    pstmt.executeUpdate();
+  }
+
+  /**
+   * Returns the server's {@code max_allowed_packet}. The value is queried once and then cached.
+   *
+   * @param connection the {@link Connection} used for the query
+   * @return the maximum packet size in bytes
+   */
+  private long getMaxAllowedPacket(Connection connection) {
+    long value = maxAllowedPacket;
+    if (value > 0) {
+      return value;
+    }
+    try (Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery("SELECT @@max_allowed_packet")) {
+      value = resultSet.next() ? resultSet.getLong(1) : DEFAULT_MAX_ALLOWED_PACKET;
+    } catch (SQLException e) {
+      Logger.warn("cannot read max_allowed_packet, use default: {}", e.getMessage());
+      value = DEFAULT_MAX_ALLOWED_PACKET;
+    }
+    maxAllowedPacket = value;
+    return value;
   }
 
   /**
    * Creates a new database connection using the provided settings.
    *
    * <p>This method constructs a connection URL and establishes a connection to the MySQL database
-   * using {@link DriverManager}.
+   * using {@link DriverManager}. It is called by the {@link MySQLConnectionPool} whenever a new
+   * physical connection is needed. Server-side prepared statements are enabled, so the statements
+   * cached on a pooled connection are parsed by the server only once. Local files are only allowed
+   * if the bulk load is enabled; the rows are then passed as a stream, so no file is read.
    *
    * @return a {@link Connection} object representing the database connection
    * @throws SQLException if a connection cannot be established
    */
   private Connection createConnection() throws SQLException {
-    String url = String.format("jdbc:mariadb://%s:%s/%s", host, port, dbName);
     Logger.debug("Connecting to " + url);
-    DriverManager.setLoginTimeout(5);
+    DriverManager.setLoginTimeout(connectTimeoutSeconds);
     return DriverManager.getConnection(url, user, password);
   }
+
+  /**
+   * Builds the connection URL with the protocol options of the given settings.
+   *
+   * <p>Compression trades CPU time for fewer bytes on the wire and pays off on slow or metered
+   * links; the timeouts detect a dead link instead of waiting for the TCP stack. The free-form
+   * properties are appended last, so the driver uses them in place of the options set here.
+   *
+   * @param setting the {@link Setting} with the protocol options
+   * @return the JDBC URL
+   */
+  private String buildUrl(Setting setting) {
+    StringBuilder builder =
+        new StringBuilder(
+            String.format(
+                "jdbc:mariadb://%s:%s/%s?useBulkStmts=true&useServerPrepStmts=true&allowLocalInfile=%s",
+                host, port, dbName, loadDataThreshold > 0));
+    builder.append("&connectTimeout=").append(TimeUnit.SECONDS.toMillis(connectTimeoutSeconds));
+    int socketTimeoutSeconds = Math.max(0, SettingValues.getInt(setting, SOCKET_TIMEOUT, 0));
+    if (socketTimeoutSeconds > 0) {
+      builder.append("&socketTimeout=").append(TimeUnit.SECONDS.toMillis(socketTimeoutSeconds));
+    }
+    if (SettingValues.getBoolean(setting, COMPRESSION, false)) {
+      builder.append("&useCompression=true");
+    }
+    String sslMode = SettingValues.getString(setting, SSL_MODE, null);
+    if (sslMode != null && !sslMode.isBlank()) {
+      builder.append("&sslMode=").append(sslMode.trim());
+    }
+    String properties = SettingValues.getString(setting, URL_PROPERTIES, null);
+    if (properties != null) {
+      for (String entry : properties.split("[&;]")) {
+        String property = entry.trim();
+        if (property.isEmpty()) {
+          continue;
+        }
+        if (property.indexOf('=') <= 0) {
+          Logger.warn("ignore driver property without value: '{}'", property);
+          continue;
+        }
+        builder.append('&').append(property);
+      }
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Rolls back the current transaction.
+   *
+   * @param connection the {@link Connection} to roll back
+   * @return {@code true} if the rollback succeeded
+   */
+  private boolean rollback(Connection connection) {
+    try {
+      connection.rollback();
+      return true;
+    } catch (SQLException e) {
+      Logger.warn("rollback failed: {}", e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Switches the connection back to auto-commit mode before it is returned to the pool.
+   *
+   * @param connection the {@link Connection} to reset
+   * @return {@code true} if the connection could be reset
+   */
+  private boolean restoreAutoCommit(Connection connection) {
+    try {
+      connection.setAutoCommit(true);
+      return true;
+    } catch (SQLException e) {
+      Logger.debug("cannot restore auto-commit: {}", e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Counts the error in the {@link ExportMetrics}, if set.
+   *
+   * @param e the {@link SQLException} to count
+   */
+  private void recordError(SQLException e) {
+    ExportMetrics currentMetrics = metrics;
+    if (currentMetrics != null) {
+      currentMetrics.recordError(e.getSQLState());
+    }
+  }
+
+  /**
+   * Checks whether the given exception indicates a broken connection (SQLState class 08).
+   *
+   * @param e the {@link SQLException} to check
+   * @return {@code true} if the connection should not be reused
+   */
+  private boolean isConnectionError(SQLException e) {
+    String sqlState = e.getSQLState();
+    return sqlState == null || sqlState.startsWith("08");
+  }
+
+  /**
+   * Splits a comma-separated list of column names.
+   *
+   * @param value the configuration value, may be {@code null}
+   * @return the trimmed, non-empty column names
+   */
+  private static List<String> parseColumns(String value) {
+    List<String> columns = new ArrayList<>();
+    if (value != null) {
+      for (String entry : value.split(",")) {
+        if (!entry.isBlank()) {
+          columns.add(entry.trim());
+        }
+      }
+    }
+    return Collections.unmodifiableList(columns);
+  }
 }
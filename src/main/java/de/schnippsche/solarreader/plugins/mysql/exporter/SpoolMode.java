@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.util.Locale;
+
+/** Defines when exports are written to the local {@link ExportSpool}. */
+public enum SpoolMode {
+  /** The spool is not used; exports that cannot be written are lost. */
+  OFF,
+  /**
+   * Only exports that cannot be kept in memory or could not be written to the database are spooled
+   * and replayed later.
+   */
+  OVERFLOW,
+  /**
+   * Every export is appended to the spool before it is queued (write-ahead log) and removed after
+   * the commit, so neither an outage nor a restart loses data.
+   */
+  JOURNAL;
+
+  /**
+   * Returns the {@code SpoolMode} matching the given configuration value.
+   *
+   * @param value the configuration value, may be {@code null}
+   * @return the matching mode or {@link #OVERFLOW} if the value is empty or unknown
+   */
+  public static SpoolMode fromString(String value) {
+    if (value != null) {
+      for (SpoolMode mode : values()) {
+        if (mode.name().equals(value.trim().toUpperCase(Locale.ROOT))) {
+          return mode;
+        }
+      }
+    }
+    return OVERFLOW;
+  }
+}
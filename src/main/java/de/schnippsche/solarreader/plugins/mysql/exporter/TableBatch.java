@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import de.schnippsche.solarreader.backend.table.Table;
+import de.schnippsche.solarreader.backend.table.TableCell;
+import de.schnippsche.solarreader.backend.table.TableRow;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A set of rows that share one {@link TableSchema} and are written with the same {@code INSERT}
+ * statement.
+ *
+ * <p>The values are copied out of the {@link TableRow}/{@link TableCell} objects into one {@link
+ * ColumnBuffer} per column, so a queued export holds primitive arrays instead of an object per
+ * cell. Rows of several exports targeting the same table can be combined into one batch with
+ * {@link #addAll(TableBatch)}.
+ */
+public final class TableBatch {
+  private final TableSchema schema;
+  private final ColumnBuffer[] columns;
+  private int rowCount;
+
+  /**
+   * Constructs an empty {@code TableBatch} for the given schema.
+   *
+   * @param schema the {@link TableSchema} of the rows
+   */
+  public TableBatch(TableSchema schema) {
+    this.schema = schema;
+    this.columns = new ColumnBuffer[schema.getColumnCount()];
+    for (int i = 0; i < columns.length; i++) {
+      columns[i] = new ColumnBuffer();
+    }
+  }
+
+  /**
+   * Creates a batch containing the rows of the given {@link Table}.
+   *
+   * @param table the {@link Table} to copy
+   * @return a new {@code TableBatch}
+   */
+  public static TableBatch of(Table table) {
+    TableBatch batch = new TableBatch(TableSchema.of(table));
+    int columnCount = batch.columns.length;
+    for (TableRow row : table.getRows()) {
+      List<TableCell> cells = row.getCells();
+      for (int i = 0; i < columnCount; i++) {
+        batch.columns[i].add(i < cells.size() ? cells.get(i).getCalculated() : null);
+      }
+      batch.rowCount++;
+    }
+    return batch;
+  }
+
+  /**
+   * Returns the schema shared by all rows.
+   *
+   * @return the {@link TableSchema}
+   */
+  public TableSchema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Returns the number of rows.
+   *
+   * @return the row count
+   */
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Returns a single value. Numeric values are boxed, so the write path uses {@link
+   * #bindRow(PreparedStatement, int, int)} instead.
+   *
+   * @param row the row index
+   * @param column the column index
+   * @return the value, may be {@code null}
+   */
+  public Object getValue(int row, int column) {
+    return columns[column].get(row);
+  }
+
+  /**
+   * Returns a single value as {@code double} without boxing.
+   *
+   * @param row the row index
+   * @param column the column index
+   * @return the numeric value, or {@link Double#NaN} if the value is null or not a number
+   */
+  double getDouble(int row, int column) {
+    return columns[column].getDouble(row);
+  }
+
+  /**
+   * Returns the type of each column. Columns that contain only null values have no type yet and are
+   * reported as {@code null}.
+   *
+   * @return the {@link ParameterType} per column, {@code null} for columns without a value
+   */
+  ParameterType[] getParameterTypes() {
+    ParameterType[] types = new ParameterType[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      types[i] = columns[i].getType();
+    }
+    return types;
+  }
+
+  /**
+   * Returns a batch with the same rows but without the given columns. The values of the remaining
+   * columns are shared with this batch.
+   *
+   * @param columnNames the names of the columns to leave out
+   * @return the projected batch, or this batch if no column is left out
+   */
+  TableBatch withoutColumns(Collection<String> columnNames) {
+    if (columnNames.isEmpty()) {
+      return this;
+    }
+    List<String> names = schema.getColumnNames();
+    List<String> kept = new ArrayList<>(names.size());
+    List<ColumnBuffer> keptColumns = new ArrayList<>(names.size());
+    for (int i = 0; i < names.size(); i++) {
+      if (!columnNames.contains(names.get(i))) {
+        kept.add(names.get(i));
+        keptColumns.add(columns[i]);
+      }
+    }
+    TableBatch projected = new TableBatch(TableSchema.intern(schema.getTableName(), kept));
+    for (int i = 0; i < keptColumns.size(); i++) {
+      projected.columns[i] = keptColumns.get(i);
+    }
+    projected.rowCount = rowCount;
+    return projected;
+  }
+
+  /**
+   * Binds the values of one row to consecutive statement parameters.
+   *
+   * @param statement the {@link PreparedStatement}
+   * @param row the row index
+   * @param firstIndex the parameter index of the first column
+   * @return the parameter index following the last column
+   * @throws SQLException if a value cannot be bound
+   */
+  int bindRow(PreparedStatement statement, int row, int firstIndex) throws SQLException {
+    int index = firstIndex;
+    for (ColumnBuffer column : columns) {
+      column.bind(statement, index++, row);
+    }
+    return index;
+  }
+
+  /**
+   * Estimates the number of bytes a row occupies in the text of a multi-row statement.
+   *
+   * @param row the row index
+   * @return the estimated size in bytes
+   */
+  long estimateStatementSize(int row) {
+    long size = 4;
+    for (ColumnBuffer column : columns) {
+      if (column.isText(row)) {
+        // worst case: every character needs escaping and up to 3 bytes in UTF-8
+        size += 6L * ((CharSequence) column.get(row)).length() + 4;
+      } else {
+        size += 32;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Appends a row as one line of tab-separated values for {@code LOAD DATA}.
+   *
+   * @param out the {@link StringBuilder} to append to
+   * @param row the row index
+   */
+  void appendRowText(StringBuilder out, int row) {
+    for (int i = 0; i < columns.length; i++) {
+      if (i > 0) {
+        out.append('\t');
+      }
+      columns[i].appendText(out, row);
+    }
+    out.append('\n');
+  }
+
+  /**
+   * Estimates the heap memory occupied by this batch.
+   *
+   * @return the estimated size in bytes
+   */
+  long estimateSize() {
+    long size = 64;
+    for (ColumnBuffer column : columns) {
+      size += column.estimateSize();
+    }
+    return size;
+  }
+
+  /**
+   * Estimates the size of the values in this batch as they are sent to the database: 8 bytes per
+   * number or timestamp and one byte per character.
+   *
+   * @return the estimated size in bytes
+   */
+  public long estimatePayloadSize() {
+    long size = 0;
+    for (ColumnBuffer column : columns) {
+      size += column.estimatePayloadSize();
+    }
+    return size;
+  }
+
+  /**
+   * Appends a row.
+   *
+   * @param values the values of the row in column order
+   */
+  public void addRow(Object[] values) {
+    for (int i = 0; i < columns.length; i++) {
+      columns[i].add(i < values.length ? values[i] : null);
+    }
+    rowCount++;
+  }
+
+  /**
+   * Appends all rows of another batch with the same schema.
+   *
+   * @param other the batch to append
+   * @throws IllegalArgumentException if the schemas differ
+   */
+  public void addAll(TableBatch other) {
+    if (!schema.equals(other.schema)) {
+      throw new IllegalArgumentException("schema mismatch: " + schema + " / " + other.schema);
+    }
+    for (int i = 0; i < columns.length; i++) {
+      columns[i].addAll(other.columns[i]);
+    }
+    rowCount += other.rowCount;
+  }
+
+  /**
+   * Appends one row of another batch with the same schema.
+   *
+   * @param other the batch to copy the row from
+   * @param row the row index in {@code other}
+   */
+  void addRow(TableBatch other, int row) {
+    for (int i = 0; i < columns.length; i++) {
+      columns[i].add(other.columns[i].get(row));
+    }
+    rowCount++;
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Compact binary encoding of {@link TableBatch} lists, used by the {@link ExportSpool}.
+ *
+ * <p>Each value is stored with a one-byte type tag followed by its binary representation, so
+ * numbers take 8 bytes instead of their text form. Values of unsupported types are stored as their
+ * string representation.
+ */
+final class TableBatchCodec {
+  private static final byte NULL = 0;
+  private static final byte DOUBLE = 1;
+  private static final byte LONG = 2;
+  private static final byte INTEGER = 3;
+  private static final byte BOOLEAN = 4;
+  private static final byte STRING = 5;
+  private static final byte DECIMAL = 6;
+  private static final byte TIMESTAMP = 7;
+  private static final byte LOCAL_DATE_TIME = 8;
+
+  private TableBatchCodec() {}
+
+  /**
+   * Encodes a list of batches.
+   *
+   * @param batches the {@link TableBatch} objects to encode
+   * @return the encoded bytes
+   * @throws IOException if the encoding fails
+   */
+  static byte[] encode(List<TableBatch> batches) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(batches.size());
+      for (TableBatch batch : batches) {
+        TableSchema schema = batch.getSchema();
+        writeString(out, schema.getTableName());
+        out.writeInt(schema.getColumnCount());
+        for (String columnName : schema.getColumnNames()) {
+          writeString(out, columnName);
+        }
+        out.writeInt(batch.getRowCount());
+        for (int row = 0; row < batch.getRowCount(); row++) {
+          for (int column = 0; column < schema.getColumnCount(); column++) {
+            writeValue(out, batch.getValue(row, column));
+          }
+        }
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Decodes a list of batches created by {@link #encode(List)}.
+   *
+   * @param data the encoded bytes
+   * @return the decoded {@link TableBatch} objects
+   * @throws IOException if the data is malformed
+   */
+  static List<TableBatch> decode(byte[] data) throws IOException {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+      int batchCount = in.readInt();
+      List<TableBatch> batches = new ArrayList<>(batchCount);
+      for (int b = 0; b < batchCount; b++) {
+        String tableName = readString(in);
+        int columnCount = in.readInt();
+        List<String> columnNames = new ArrayList<>(columnCount);
+        for (int c = 0; c < columnCount; c++) {
+          columnNames.add(readString(in));
+        }
+        TableBatch batch = new TableBatch(TableSchema.intern(tableName, columnNames));
+        int rowCount = in.readInt();
+        for (int r = 0; r < rowCount; r++) {
+          Object[] row = new Object[columnCount];
+          for (int c = 0; c < columnCount; c++) {
+            row[c] = readValue(in);
+          }
+          batch.addRow(row);
+        }
+        batches.add(batch);
+      }
+      return batches;
+    }
+  }
+
+  private static void writeValue(DataOutputStream out, Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof Double || value instanceof Float) {
+      out.writeByte(DOUBLE);
+      out.writeDouble(((Number) value).doubleValue());
+    } else if (value instanceof Long) {
+      out.writeByte(LONG);
+      out.writeLong((Long) value);
+    } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      out.writeByte(INTEGER);
+      out.writeInt(((Number) value).intValue());
+    } else if (value instanceof Boolean) {
+      out.writeByte(BOOLEAN);
+      out.writeBoolean((Boolean) value);
+    } else if (value instanceof BigDecimal) {
+      out.writeByte(DECIMAL);
+      writeString(out, value.toString());
+    } else if (value instanceof LocalDateTime) {
+      LocalDateTime localDateTime = (LocalDateTime) value;
+      out.writeByte(LOCAL_DATE_TIME);
+      out.writeLong(localDateTime.toEpochSecond(ZoneOffset.UTC));
+      out.writeInt(localDateTime.getNano());
+    } else if (toInstant(value) != null) {
+      Instant instant = toInstant(value);
+      out.writeByte(TIMESTAMP);
+      out.writeLong(instant.getEpochSecond());
+      out.writeInt(instant.getNano());
+    } else {
+      out.writeByte(STRING);
+      writeString(out, value.toString());
+    }
+  }
+
+  private static Object readValue(DataInputStream in) throws IOException {
+    byte type = in.readByte();
+    switch (type) {
+      case NULL:
+        return null;
+      case DOUBLE:
+        return in.readDouble();
+      case LONG:
+        return in.readLong();
+      case INTEGER:
+        return in.readInt();
+      case BOOLEAN:
+        return in.readBoolean();
+      case DECIMAL:
+        return new BigDecimal(readString(in));
+      case LOCAL_DATE_TIME:
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+      case TIMESTAMP:
+        return Timestamp.from(Instant.ofEpochSecond(in.readLong(), in.readInt()));
+      case STRING:
+        return readString(in);
+      default:
+        throw new IOException("unknown value type " + type);
+    }
+  }
+
+  private static Instant toInstant(Object value) {
+    if (value instanceof Date) {
+      return value instanceof Timestamp
+          ? ((Timestamp) value).toInstant()
+          : Instant.ofEpochMilli(((Date) value).getTime());
+    }
+    if (value instanceof Instant) {
+      return (Instant) value;
+    }
+    if (value instanceof ZonedDateTime) {
+      return ((ZonedDateTime) value).toInstant();
+    }
+    if (value instanceof OffsetDateTime) {
+      return ((OffsetDateTime) value).toInstant();
+    }
+    return null;
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import de.schnippsche.solarreader.backend.table.Table;
+import de.schnippsche.solarreader.backend.table.TableColumn;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Identifies the target of an insert: the table name together with the ordered list of column
+ * names.
+ *
+ * <p>Two tables with the same schema can be written with the same {@code INSERT} statement, so
+ * this class is used as key when rows of different exports are combined.
+ *
+ * <p>Schemas created with {@link #of(Table)} or {@link #intern(String, List)} are interned, so all
+ * queued batches of a table share one instance including its column names.
+ */
+public final class TableSchema {
+  private static final Map<TableSchema, TableSchema> INTERNED = new ConcurrentHashMap<>();
+  private final String tableName;
+  private final List<String> columnNames;
+  private final int hashCode;
+
+  /**
+   * Constructs a new {@code TableSchema}.
+   *
+   * @param tableName the name of the target table
+   * @param columnNames the ordered column names
+   */
+  public TableSchema(String tableName, List<String> columnNames) {
+    this.tableName = Objects.requireNonNull(tableName);
+    this.columnNames = Collections.unmodifiableList(new ArrayList<>(columnNames));
+    this.hashCode = Objects.hash(tableName, this.columnNames);
+  }
+
+  /**
+   * Creates the schema of the given {@link Table}.
+   *
+   * @param table the {@link Table}
+   * @return the {@code TableSchema} of the table
+   */
+  public static TableSchema of(Table table) {
+    List<String> names = new ArrayList<>(table.getColumns().size());
+    for (TableColumn column : table.getColumns()) {
+      names.add(column.getColumnName());
+    }
+    return intern(table.getTableName(), names);
+  }
+
+  /**
+   * Returns the shared instance of the schema with the given table and column names.
+   *
+   * @param tableName the name of the target table
+   * @param columnNames the ordered column names
+   * @return the interned {@code TableSchema}
+   */
+  public static TableSchema intern(String tableName, List<String> columnNames) {
+    TableSchema schema = new TableSchema(tableName, columnNames);
+    TableSchema existing = INTERNED.putIfAbsent(schema, schema);
+    return existing != null ? existing : schema;
+  }
+
+  /**
+   * Returns the name of the target table.
+   *
+   * @return the table name
+   */
+  public String getTableName() {
+    return tableName;
+  }
+
+  /**
+   * Returns the ordered column names.
+   *
+   * @return an unmodifiable list of column names
+   */
+  public List<String> getColumnNames() {
+    return columnNames;
+  }
+
+  /**
+   * Returns the number of columns.
+   *
+   * @return the column count
+   */
+  public int getColumnCount() {
+    return columnNames.size();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof TableSchema)) {
+      return false;
+    }
+    TableSchema that = (TableSchema) o;
+    return hashCode == that.hashCode
+        && tableName.equals(that.tableName)
+        && columnNames.equals(that.columnNames);
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    return tableName + columnNames;
+  }
+}
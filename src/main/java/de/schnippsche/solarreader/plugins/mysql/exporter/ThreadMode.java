@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.concurrent.ThreadFactory;
+import org.tinylog.Logger;
+
+/** Defines which kind of threads the exporter uses for the consumer and the writers. */
+public enum ThreadMode {
+  /** Platform threads, available on every supported runtime. */
+  PLATFORM,
+  /**
+   * Virtual threads, available from Java 21. A blocked JDBC call then only parks the virtual
+   * thread instead of occupying a platform thread. On older runtimes platform threads are used.
+   */
+  VIRTUAL;
+
+  /**
+   * Returns the {@code ThreadMode} matching the given configuration value.
+   *
+   * @param value the configuration value, may be {@code null}
+   * @return the matching mode or {@link #PLATFORM} if the value is empty or unknown
+   */
+  public static ThreadMode fromString(String value) {
+    if (value != null) {
+      for (ThreadMode mode : values()) {
+        if (mode.name().equals(value.trim().toUpperCase(Locale.ROOT))) {
+          return mode;
+        }
+      }
+    }
+    return PLATFORM;
+  }
+
+  /**
+   * Creates a thread factory for this mode.
+   *
+   * <p>The virtual thread API is looked up by reflection, because the plugin is compiled for Java
+   * 11. If the runtime does not provide it, a factory for platform threads is returned.
+   *
+   * @param name the thread name, or the name prefix if {@code numbered} is set
+   * @param numbered {@code true} to append a sequence number starting with 1 to the name
+   * @return the {@link ThreadFactory}
+   */
+  ThreadFactory newThreadFactory(String name, boolean numbered) {
+    if (this == VIRTUAL) {
+      try {
+        Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+        Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+        builder =
+            numbered
+                ? builderClass
+                    .getMethod("name", String.class, long.class)
+                    .invoke(builder, name + "-", 1L)
+                : builderClass.getMethod("name", String.class).invoke(builder, name);
+        Method factory = builderClass.getMethod("factory");
+        return (ThreadFactory) factory.invoke(builder);
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        Logger.warn("virtual threads not supported by this runtime, use platform threads");
+      }
+    }
+    return new PlatformThreadFactory(name, numbered);
+  }
+
+  private static final class PlatformThreadFactory implements ThreadFactory {
+    private final String name;
+    private final boolean numbered;
+    private int threadNumber;
+
+    private PlatformThreadFactory(String name, boolean numbered) {
+      this.name = name;
+      this.numbered = numbered;
+    }
+
+    @Override
+    public synchronized Thread newThread(Runnable runnable) {
+      return new Thread(runnable, numbered ? name + "-" + ++threadNumber : name);
+    }
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.util.Locale;
+
+/**
+ * Defines how rows are written whose unique key already exists in the target table.
+ *
+ * <p>With {@link #IGNORE} or {@link #UPDATE}, a batch that is written again after a failed commit
+ * or replayed from the spool does not duplicate rows, provided that the table has a unique index
+ * on its natural key, e.g. the device and the timestamp.
+ */
+public enum UpsertMode {
+  /** Plain {@code INSERT}; a duplicate key fails the transaction. */
+  OFF,
+  /** {@code INSERT IGNORE}; rows with an existing key are skipped. */
+  IGNORE,
+  /**
+   * {@code INSERT ... ON DUPLICATE KEY UPDATE}; rows with an existing key overwrite all columns
+   * that are not part of the key.
+   */
+  UPDATE;
+
+  /**
+   * Returns the {@code UpsertMode} matching the given configuration value.
+   *
+   * @param value the configuration value, may be {@code null}
+   * @return the matching mode or {@link #OFF} if the value is empty or unknown
+   */
+  public static UpsertMode fromString(String value) {
+    if (value != null) {
+      for (UpsertMode mode : values()) {
+        if (mode.name().equals(value.trim().toUpperCase(Locale.ROOT))) {
+          return mode;
+        }
+      }
+    }
+    return OFF;
+  }
+}
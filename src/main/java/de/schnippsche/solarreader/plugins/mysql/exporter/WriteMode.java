@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import java.util.Locale;
+
+/** Defines how {@link SimpleMySQLConnection} sends the rows of a table to the database. */
+public enum WriteMode {
+  /**
+   * Sends one parameter set per row in a JDBC batch. On MariaDB servers the driver transmits the
+   * batch with the bulk protocol in a single round trip.
+   */
+  BATCH,
+  /**
+   * Folds the rows into multi-row {@code INSERT ... VALUES (...), (...)} statements that are
+   * chunked to fit into the server's {@code max_allowed_packet}.
+   */
+  MULTIROW;
+
+  /**
+   * Returns the {@code WriteMode} matching the given configuration value.
+   *
+   * @param value the configuration value, may be {@code null}
+   * @return the matching mode or {@link #BATCH} if the value is empty or unknown
+   */
+  public static WriteMode fromString(String value) {
+    if (value != null) {
+      for (WriteMode mode : values()) {
+        if (mode.name().equals(value.trim().toUpperCase(Locale.ROOT))) {
+          return mode;
+        }
+      }
+    }
+    return BATCH;
+  }
+}
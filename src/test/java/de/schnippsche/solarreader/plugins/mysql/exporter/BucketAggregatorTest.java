@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class BucketAggregatorTest {
+  private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+  private static final long START = 1_700_000_000_000L / MINUTE * MINUTE;
+  private static final TableSchema SCHEMA =
+      new TableSchema("inverter", Arrays.asList("name", "power"));
+
+  private static TableBatch batch(Double... powers) {
+    TableBatch batch = new TableBatch(SCHEMA);
+    for (Double power : powers) {
+      batch.addRow(new Object[] {"wr", power});
+    }
+    return batch;
+  }
+
+  @Test
+  void bucketIsFinishedByFirstSampleOfNextBucket() {
+    BucketAggregator aggregator = BucketAggregator.of("1m");
+    assertTrue(aggregator.add(batch(10.0), START).isEmpty());
+    assertTrue(aggregator.add(batch(30.0), START + MINUTE - 1).isEmpty());
+    assertTrue(aggregator.add(batch(20.0), START + 30_000).isEmpty());
+
+    List<TableBatch> finished = aggregator.add(batch(99.0), START + MINUTE);
+
+    assertEquals(1, finished.size());
+    TableBatch bucket = finished.get(0);
+    assertEquals("inverter_1m", bucket.getSchema().getTableName());
+    assertEquals(
+        Arrays.asList(
+            "bucket_start",
+            "position",
+            "samples",
+            "power_min",
+            "power_max",
+            "power_avg",
+            "power_last"),
+        bucket.getSchema().getColumnNames());
+    assertEquals(1, bucket.getRowCount());
+    assertEquals(new Timestamp(START), bucket.getValue(0, 0));
+    assertEquals(0L, bucket.getValue(0, 1));
+    assertEquals(3L, bucket.getValue(0, 2));
+    assertEquals(10.0, bucket.getValue(0, 3));
+    assertEquals(30.0, bucket.getValue(0, 4));
+    assertEquals(20.0, bucket.getValue(0, 5));
+    assertEquals(20.0, bucket.getValue(0, 6));
+  }
+
+  @Test
+  void everyRowPositionGetsItsOwnRow() {
+    BucketAggregator aggregator = BucketAggregator.of("60");
+    aggregator.add(batch(1.0, 100.0), START);
+    aggregator.add(batch(3.0, null), START + 1000);
+
+    TableBatch bucket = aggregator.add(batch(0.0, 0.0), START + MINUTE).get(0);
+
+    assertEquals(2, bucket.getRowCount());
+    assertEquals(2.0, bucket.getValue(0, 5));
+    assertEquals(1L, bucket.getValue(1, 1));
+    assertEquals(2L, bucket.getValue(1, 2));
+    assertEquals(100.0, bucket.getValue(1, 5));
+  }
+
+  @Test
+  void lateSampleDoesNotReopenFinishedBucket() {
+    BucketAggregator aggregator = BucketAggregator.of("1m");
+    aggregator.add(batch(10.0), START);
+    assertEquals(1, aggregator.add(batch(20.0), START + MINUTE).size());
+
+    assertTrue(aggregator.add(batch(500.0), START + 1000).isEmpty());
+
+    TableBatch bucket = aggregator.add(batch(0.0), START + 2 * MINUTE).get(0);
+    assertEquals(new Timestamp(START + MINUTE), bucket.getValue(0, 0));
+    assertEquals(1L, bucket.getValue(0, 2));
+    assertEquals(20.0, bucket.getValue(0, 4));
+  }
+
+  @Test
+  void severalBucketSizesFinishIndependently() {
+    BucketAggregator aggregator = BucketAggregator.of("1m, 5m");
+    aggregator.add(batch(1.0), START / (5 * MINUTE) * (5 * MINUTE));
+    long next = START / (5 * MINUTE) * (5 * MINUTE) + MINUTE;
+
+    List<TableBatch> finished = aggregator.add(batch(2.0), next);
+
+    assertEquals(1, finished.size());
+    assertEquals("inverter_1m", finished.get(0).getSchema().getTableName());
+    assertEquals(
+        "inverter_5m",
+        aggregator.add(batch(3.0), next + 4 * MINUTE).get(1).getSchema().getTableName());
+  }
+
+  @Test
+  void columnEmptyInFirstBatchIsAggregatedLater() {
+    TableSchema schema = new TableSchema("meter", Arrays.asList("power", "energy"));
+    BucketAggregator aggregator = BucketAggregator.of("1m");
+    TableBatch first = new TableBatch(schema);
+    first.addRow(new Object[] {10.0, null});
+    TableBatch second = new TableBatch(schema);
+    second.addRow(new Object[] {20.0, 5L});
+    aggregator.add(first, START);
+    aggregator.add(second, START + 1000);
+
+    TableBatch bucket = aggregator.add(first, START + MINUTE).get(0);
+
+    assertEquals(
+        Arrays.asList(
+            "bucket_start",
+            "position",
+            "samples",
+            "power_min",
+            "power_max",
+            "power_avg",
+            "power_last",
+            "energy_min",
+            "energy_max",
+            "energy_avg",
+            "energy_last"),
+        bucket.getSchema().getColumnNames());
+    assertEquals(2L, bucket.getValue(0, 2));
+    assertEquals(15.0, bucket.getValue(0, 5));
+    assertEquals(5.0, bucket.getValue(0, 9));
+  }
+
+  @Test
+  void integralThenFloatingColumnKeepsAggregating() {
+    TableSchema schema = new TableSchema("meter", Arrays.asList("power"));
+    BucketAggregator aggregator = BucketAggregator.of("1m");
+    TableBatch integral = new TableBatch(schema);
+    integral.addRow(new Object[] {10L});
+    TableBatch floating = new TableBatch(schema);
+    floating.addRow(new Object[] {20.5});
+    aggregator.add(integral, START);
+    aggregator.add(floating, START + 1000);
+
+    TableBatch bucket = aggregator.add(integral, START + MINUTE).get(0);
+
+    assertEquals(10.0, bucket.getValue(0, 3));
+    assertEquals(20.5, bucket.getValue(0, 4));
+    assertEquals(20.5, bucket.getValue(0, 6));
+  }
+
+  @Test
+  void configurationAndAggregateSchemas() {
+    assertNull(BucketAggregator.of(null));
+    assertNull(BucketAggregator.of("x, 0m"));
+    BucketAggregator aggregator = BucketAggregator.of("1m");
+    aggregator.add(batch(1.0), START);
+    TableSchema aggregateSchema = aggregator.add(batch(1.0), START + MINUTE).get(0).getSchema();
+
+    assertTrue(BucketAggregator.isAggregate(aggregateSchema));
+    assertFalse(BucketAggregator.isAggregate(SCHEMA));
+  }
+}
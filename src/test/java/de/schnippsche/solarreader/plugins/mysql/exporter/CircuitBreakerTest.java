@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+  @Test
+  void delayDoublesWithJitterUpToMaximum() {
+    CircuitBreaker breaker = new CircuitBreaker(3, 1000, 5000);
+    long[] upperBounds = {1000, 2000, 4000, 5000, 5000};
+    for (long upperBound : upperBounds) {
+      long delay = breaker.recordFailure();
+      assertTrue(delay >= upperBound / 2 && delay <= upperBound, "delay " + delay);
+    }
+    assertEquals(5, breaker.getFailures());
+  }
+
+  @Test
+  void opensAfterThresholdAndClosesOnSuccess() {
+    CircuitBreaker breaker = new CircuitBreaker(2, 1000, 5000);
+    assertFalse(breaker.isOpen());
+    assertEquals(0, breaker.getDelayMillis());
+
+    breaker.recordFailure();
+    assertFalse(breaker.isOpen());
+    assertTrue(breaker.getDelayMillis() > 0);
+    breaker.recordFailure();
+    assertTrue(breaker.isOpen());
+
+    breaker.recordSuccess();
+    assertFalse(breaker.isOpen());
+    assertEquals(0, breaker.getFailures());
+    assertEquals(0, breaker.getDelayMillis());
+  }
+
+  @Test
+  void invalidArgumentsAreClamped() {
+    CircuitBreaker breaker = new CircuitBreaker(0, 0, 0);
+    long delay = breaker.recordFailure();
+    assertTrue(delay <= 1);
+    assertTrue(breaker.isOpen());
+  }
+}
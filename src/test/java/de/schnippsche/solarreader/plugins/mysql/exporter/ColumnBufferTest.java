@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import org.junit.jupiter.api.Test;
+
+class ColumnBufferTest {
+
+  @Test
+  void typeIsTakenFromFirstNonNullValue() {
+    ColumnBuffer column = new ColumnBuffer();
+    column.add(null);
+    assertNull(column.getType());
+    column.add(1.5);
+    column.add(2.5f);
+
+    assertEquals(ParameterType.DOUBLE, column.getType());
+    assertEquals(3, column.size());
+    assertTrue(column.isNull(0));
+    assertNull(column.get(0));
+    assertEquals(1.5, column.get(1));
+    assertEquals(2.5, column.getDouble(2));
+  }
+
+  @Test
+  void integralValuesStayInLongColumn() {
+    ColumnBuffer column = new ColumnBuffer();
+    column.add(1);
+    column.add(2L);
+    column.add((short) 3);
+
+    assertEquals(ParameterType.LONG, column.getType());
+    assertEquals(1L, column.get(0));
+    assertEquals(3L, column.get(2));
+  }
+
+  @Test
+  void mixedNumbersWidenToDoubleColumn() {
+    ColumnBuffer column = new ColumnBuffer();
+    column.add(1L);
+    column.add(null);
+    column.add(2.5);
+    column.add(3);
+    column.add(new BigDecimal("4.25"));
+
+    assertEquals(ParameterType.DOUBLE, column.getType());
+    assertEquals(1.0, column.get(0));
+    assertTrue(column.isNull(1));
+    assertEquals(2.5, column.get(2));
+    assertEquals(3.0, column.get(3));
+    assertEquals(4.25, column.get(4));
+  }
+
+  @Test
+  void mismatchingValueWidensToObjectColumn() {
+    ColumnBuffer column = new ColumnBuffer();
+    column.add(1L);
+    column.add(null);
+    column.add(2.5);
+    column.add("text");
+
+    assertEquals(ParameterType.OBJECT, column.getType());
+    assertEquals(1.0, column.get(0));
+    assertTrue(column.isNull(1));
+    assertEquals(2.5, column.get(2));
+    assertEquals("text", column.get(3));
+    assertEquals(2.5, column.getDouble(2));
+    assertTrue(Double.isNaN(column.getDouble(3)));
+  }
+
+  @Test
+  void addAllWidensMixedNumbersToDouble() {
+    ColumnBuffer longs = new ColumnBuffer();
+    longs.add(2L);
+    longs.add(null);
+    ColumnBuffer doubles = new ColumnBuffer();
+    doubles.add(1.5);
+
+    longs.addAll(doubles);
+    doubles.addAll(longs);
+
+    assertEquals(ParameterType.DOUBLE, longs.getType());
+    assertEquals(2.0, longs.get(0));
+    assertTrue(longs.isNull(1));
+    assertEquals(1.5, longs.get(2));
+    assertEquals(ParameterType.DOUBLE, doubles.getType());
+    assertEquals(4, doubles.size());
+    assertEquals(2.0, doubles.get(1));
+    assertTrue(doubles.isNull(2));
+  }
+
+  @Test
+  void addAllWidensOtherMismatchToObject() {
+    ColumnBuffer doubles = new ColumnBuffer();
+    doubles.add(1.5);
+    ColumnBuffer texts = new ColumnBuffer();
+    texts.add("text");
+
+    doubles.addAll(texts);
+
+    assertEquals(ParameterType.OBJECT, doubles.getType());
+    assertEquals(1.5, doubles.get(0));
+    assertEquals("text", doubles.get(1));
+  }
+
+  @Test
+  void addAllKeepsPrimitiveStorageForSameType() {
+    ColumnBuffer first = new ColumnBuffer();
+    first.add(null);
+    ColumnBuffer second = new ColumnBuffer();
+    for (int i = 0; i < 100; i++) {
+      second.add(i * 0.5);
+    }
+
+    first.addAll(second);
+    first.addAll(second);
+
+    assertEquals(ParameterType.DOUBLE, first.getType());
+    assertEquals(201, first.size());
+    assertTrue(first.isNull(0));
+    assertFalse(first.isNull(200));
+    assertEquals(49.5, first.get(200));
+  }
+
+  @Test
+  void temporalValuesAreWrittenAsTimestampText() {
+    Instant instant = Instant.parse("2025-06-01T08:30:15.250Z");
+    String expected = Timestamp.from(instant).toString();
+    ColumnBuffer column = new ColumnBuffer();
+    column.add(instant);
+    column.add(instant.atZone(ZoneId.of("America/New_York")));
+    column.add(OffsetDateTime.ofInstant(instant, ZoneOffset.ofHours(5)));
+    column.add(Date.from(instant));
+    column.add("a\tb");
+
+    assertEquals(ParameterType.OBJECT, column.getType());
+    for (int row = 0; row < 4; row++) {
+      StringBuilder text = new StringBuilder();
+      column.appendText(text, row);
+      assertEquals(expected, text.toString());
+    }
+    StringBuilder text = new StringBuilder();
+    column.appendText(text, 4);
+    assertEquals("a\\tb", text.toString());
+  }
+
+  @Test
+  void zonedValuesResolveToTimestampType() {
+    ColumnBuffer column = new ColumnBuffer();
+    column.add(ZonedDateTime.now());
+    column.add(Instant.now());
+
+    assertEquals(ParameterType.TIMESTAMP, column.getType());
+  }
+}
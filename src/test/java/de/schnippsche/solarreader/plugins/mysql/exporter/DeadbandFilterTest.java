@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class DeadbandFilterTest {
+  private static final long HEARTBEAT = TimeUnit.MINUTES.toNanos(5);
+  private static final TableSchema SCHEMA =
+      new TableSchema("data", Arrays.asList("time", "power", "voltage", "state", "counter"));
+
+  private static TableBatch batch(double power, double voltage, String state, long counter) {
+    TableBatch batch = new TableBatch(SCHEMA);
+    batch.addRow(new Object[] {LocalDateTime.now(), power, voltage, state, counter});
+    return batch;
+  }
+
+  private static int rows(TableBatch batch) {
+    return batch == null ? 0 : batch.getRowCount();
+  }
+
+  private final DeadbandFilter filter =
+      DeadbandFilter.of("0.5", "voltage=2%, counter=ignore", HEARTBEAT);
+
+  @Test
+  void absoluteDeadbandSkipsSmallChanges() {
+    assertEquals(1, rows(filter.apply(batch(100, 230, "on", 1), 0, new DeadbandFilter.Undo())));
+    assertNull(filter.apply(batch(100.5, 230, "on", 1), 1, new DeadbandFilter.Undo()));
+    assertEquals(1, rows(filter.apply(batch(100.6, 230, "on", 1), 2, new DeadbandFilter.Undo())));
+  }
+
+  @Test
+  void relativeDeadbandDependsOnRememberedValue() {
+    filter.apply(batch(100, 230, "on", 1), 0, new DeadbandFilter.Undo());
+    // 2 % of 230 is 4.6
+    assertNull(filter.apply(batch(100, 234.6, "on", 1), 1, new DeadbandFilter.Undo()));
+    assertEquals(1, rows(filter.apply(batch(100, 235, "on", 1), 2, new DeadbandFilter.Undo())));
+  }
+
+  @Test
+  void ignoredAndTemporalColumnsAreNotCompared() {
+    filter.apply(batch(100, 230, "on", 1), 0, new DeadbandFilter.Undo());
+    assertNull(filter.apply(batch(100, 230, "on", 99), 1, new DeadbandFilter.Undo()));
+  }
+
+  @Test
+  void textAndNullChangesAreExported() {
+    filter.apply(batch(100, 230, "on", 1), 0, new DeadbandFilter.Undo());
+    assertEquals(1, rows(filter.apply(batch(100, 230, "off", 1), 1, new DeadbandFilter.Undo())));
+    TableBatch withNull = new TableBatch(SCHEMA);
+    withNull.addRow(new Object[] {LocalDateTime.now(), null, 230.0, "off", 1L});
+    assertEquals(1, rows(filter.apply(withNull, 2, new DeadbandFilter.Undo())));
+  }
+
+  @Test
+  void heartbeatExportsUnchangedRows() {
+    filter.apply(batch(100, 230, "on", 1), 0, new DeadbandFilter.Undo());
+    assertNull(filter.apply(batch(100, 230, "on", 1), HEARTBEAT - 1, new DeadbandFilter.Undo()));
+    assertEquals(
+        1, rows(filter.apply(batch(100, 230, "on", 1), HEARTBEAT, new DeadbandFilter.Undo())));
+  }
+
+  @Test
+  void onlyChangedRowsAreKept() {
+    TableBatch first = new TableBatch(SCHEMA);
+    first.addRow(new Object[] {null, 1.0, 230.0, "on", 1L});
+    first.addRow(new Object[] {null, 2.0, 230.0, "on", 1L});
+    assertSame(first, filter.apply(first, 0, new DeadbandFilter.Undo()));
+
+    TableBatch second = new TableBatch(SCHEMA);
+    second.addRow(new Object[] {null, 1.0, 230.0, "on", 1L});
+    second.addRow(new Object[] {null, 5.0, 230.0, "on", 1L});
+    TableBatch changed = filter.apply(second, 1, new DeadbandFilter.Undo());
+    assertEquals(1, rows(changed));
+    assertEquals(5.0, changed.getValue(0, 1));
+  }
+
+  @Test
+  void rollbackRestoresPreviousValues() {
+    filter.apply(batch(100, 230, "on", 1), 0, new DeadbandFilter.Undo());
+    DeadbandFilter.Undo undo = new DeadbandFilter.Undo();
+    assertEquals(1, rows(filter.apply(batch(110, 230, "on", 1), 1, undo)));
+
+    filter.rollback(undo);
+
+    assertNull(filter.apply(batch(100, 230, "on", 1), 2, new DeadbandFilter.Undo()));
+    assertEquals(1, rows(filter.apply(batch(110, 230, "on", 1), 3, new DeadbandFilter.Undo())));
+  }
+
+  @Test
+  void rollbackKeepsValuesOfLaterExport() {
+    filter.apply(batch(100, 230, "on", 1), 0, new DeadbandFilter.Undo());
+    DeadbandFilter.Undo undo = new DeadbandFilter.Undo();
+    filter.apply(batch(110, 230, "on", 1), 1, undo);
+    filter.apply(batch(120, 230, "on", 1), 2, new DeadbandFilter.Undo());
+
+    filter.rollback(undo);
+
+    assertNull(filter.apply(batch(120, 230, "on", 1), 3, new DeadbandFilter.Undo()));
+  }
+}
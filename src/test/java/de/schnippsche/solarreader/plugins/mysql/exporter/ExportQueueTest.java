@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+import org.junit.jupiter.api.Test;
+
+class ExportQueueTest {
+  private final List<String> dropped = new ArrayList<>();
+
+  private ExportQueue<String> queue(int maxEntries, long maxBytes, OverflowPolicy policy) {
+    return new ExportQueue<>(
+        maxEntries,
+        maxBytes,
+        policy,
+        String::length,
+        dropped::add,
+        UnaryOperator.identity(),
+        UnaryOperator.identity());
+  }
+
+  @Test
+  void dropNewestRejectsNewEntry() throws InterruptedException {
+    ExportQueue<String> queue = queue(2, 1000, OverflowPolicy.DROP_NEWEST);
+    assertTrue(queue.offer("a", 0, TimeUnit.SECONDS));
+    assertTrue(queue.offer("b", 0, TimeUnit.SECONDS));
+    assertFalse(queue.offer("c", 0, TimeUnit.SECONDS));
+    assertEquals(1, queue.getDroppedNewestCount());
+    assertEquals("a", queue.poll(0, TimeUnit.SECONDS));
+    assertEquals("b", queue.poll(0, TimeUnit.SECONDS));
+    assertNull(queue.poll(0, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void dropOldestPassesEvictedEntryToListener() throws InterruptedException {
+    ExportQueue<String> queue = queue(2, 1000, OverflowPolicy.DROP_OLDEST);
+    queue.offer("a", 0, TimeUnit.SECONDS);
+    queue.offer("b", 0, TimeUnit.SECONDS);
+    assertTrue(queue.offer("c", 0, TimeUnit.SECONDS));
+    assertEquals(List.of("a"), dropped);
+    assertEquals(1, queue.getDroppedOldestCount());
+    List<String> remaining = new ArrayList<>();
+    assertEquals(2, queue.drainTo(remaining, 10));
+    assertEquals(List.of("b", "c"), remaining);
+  }
+
+  @Test
+  void dropListenerRunsWithoutHoldingTheLock() throws Exception {
+    List<Integer> sizesSeenByOtherThread = new ArrayList<>();
+    AtomicReference<ExportQueue<String>> holder = new AtomicReference<>();
+    holder.set(
+        new ExportQueue<>(
+            1,
+            1000,
+            OverflowPolicy.DROP_OLDEST,
+            String::length,
+            entry -> {
+              try {
+                sizesSeenByOtherThread.add(
+                    CompletableFuture.supplyAsync(() -> holder.get().size())
+                        .get(1, TimeUnit.SECONDS));
+              } catch (Exception e) {
+                throw new AssertionError("queue locked while notifying the drop listener", e);
+              }
+            },
+            UnaryOperator.identity(),
+            UnaryOperator.identity()));
+    holder.get().offer("a", 0, TimeUnit.SECONDS);
+    assertTrue(holder.get().offer("b", 0, TimeUnit.SECONDS));
+    assertEquals(List.of(1), sizesSeenByOtherThread);
+  }
+
+  @Test
+  void spillRejectsNewEntryAndCountsIt() throws InterruptedException {
+    ExportQueue<String> queue = queue(1, 1000, OverflowPolicy.SPILL);
+    queue.offer("a", 0, TimeUnit.SECONDS);
+    assertFalse(queue.offer("b", 0, TimeUnit.SECONDS));
+    assertEquals(1, queue.getSpilledCount());
+    assertEquals(0, queue.getDroppedNewestCount());
+    assertEquals(1, queue.size());
+  }
+
+  @Test
+  void blockTimesOutAndDropsNewEntry() throws InterruptedException {
+    ExportQueue<String> queue = queue(1, 1000, OverflowPolicy.BLOCK);
+    queue.offer("a", 0, TimeUnit.SECONDS);
+    assertFalse(queue.offer("b", 10, TimeUnit.MILLISECONDS));
+    assertEquals(1, queue.getBlockedCount());
+    assertEquals(1, queue.getDroppedNewestCount());
+  }
+
+  @Test
+  void blockWaitsUntilConsumerMakesRoom() throws Exception {
+    ExportQueue<String> queue = queue(1, 1000, OverflowPolicy.BLOCK);
+    queue.offer("a", 0, TimeUnit.SECONDS);
+    CompletableFuture<Boolean> offered =
+        CompletableFuture.supplyAsync(
+            () -> {
+              try {
+                return queue.offer("b", 10, TimeUnit.SECONDS);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+              }
+            });
+    assertEquals("a", queue.poll(1, TimeUnit.SECONDS));
+    assertTrue(offered.get(5, TimeUnit.SECONDS));
+    assertEquals("b", queue.poll(1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void memoryLimitAppliesButOversizedEntryFitsIntoEmptyQueue() throws InterruptedException {
+    ExportQueue<String> queue = queue(10, 4, OverflowPolicy.DROP_NEWEST);
+    assertTrue(queue.offer("abcdefgh", 0, TimeUnit.SECONDS));
+    assertFalse(queue.offer("a", 0, TimeUnit.SECONDS));
+    assertEquals(8, queue.getBytes());
+    queue.poll(0, TimeUnit.SECONDS);
+    assertTrue(queue.offer("abc", 0, TimeUnit.SECONDS));
+    assertTrue(queue.offer("d", 0, TimeUnit.SECONDS));
+    assertFalse(queue.offer("e", 0, TimeUnit.SECONDS));
+    assertEquals(4, queue.getBytes());
+  }
+
+  @Test
+  void storeAndLoadAreAppliedInOrder() throws InterruptedException {
+    ExportQueue<String> queue =
+        new ExportQueue<>(
+            10,
+            1000,
+            OverflowPolicy.SPILL,
+            String::length,
+            dropped::add,
+            String::toUpperCase,
+            String::toLowerCase);
+    queue.offer("Ab", 0, TimeUnit.SECONDS);
+    queue.offer("Cd", 0, TimeUnit.SECONDS);
+    assertEquals("ab", queue.poll(0, TimeUnit.SECONDS));
+    assertEquals("cd", queue.poll(0, TimeUnit.SECONDS));
+    assertEquals(0, queue.getBytes());
+  }
+
+  @Test
+  void policyIsParsedWithSpillAsDefault() {
+    assertEquals(OverflowPolicy.DROP_OLDEST, OverflowPolicy.fromString("dropoldest"));
+    assertEquals(OverflowPolicy.DROP_NEWEST, OverflowPolicy.fromString(" DROP_NEWEST "));
+    assertEquals(OverflowPolicy.BLOCK, OverflowPolicy.fromString("Block"));
+    assertEquals(OverflowPolicy.SPILL, OverflowPolicy.fromString(null));
+    assertEquals(OverflowPolicy.SPILL, OverflowPolicy.fromString("unknown"));
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ExportSpoolTest {
+  private static final TableSchema SCHEMA = new TableSchema("data", Arrays.asList("power"));
+
+  @TempDir Path directory;
+
+  private static List<TableBatch> batches(double value) {
+    TableBatch batch = new TableBatch(SCHEMA);
+    batch.addRow(new Object[] {value});
+    return List.of(batch);
+  }
+
+  private static double value(PendingExport export) {
+    return export.getBatches().get(0).getDouble(0, 0);
+  }
+
+  private List<Path> files(String suffix) throws IOException {
+    try (Stream<Path> stream = Files.list(directory)) {
+      return stream
+          .filter(path -> path.toString().endsWith(suffix))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  @Test
+  void recordsAreReplayedAfterReopen() throws IOException {
+    try (ExportSpool spool = new ExportSpool(directory, 1024)) {
+      spool.open();
+      spool.append(batches(1), false);
+      spool.append(batches(2), true);
+      assertEquals(2, spool.getPendingCount());
+      List<PendingExport> replayed = spool.readReplayable(10);
+      assertEquals(1, replayed.size());
+      assertEquals(1.0, value(replayed.get(0)));
+    }
+    try (ExportSpool spool = new ExportSpool(directory, 1024)) {
+      spool.open();
+      List<PendingExport> replayed = spool.readReplayable(10);
+      assertEquals(2, replayed.size());
+      assertEquals(1.0, value(replayed.get(0)));
+      assertEquals(2.0, value(replayed.get(1)));
+      assertFalse(spool.hasReplayable());
+    }
+  }
+
+  @Test
+  void acknowledgedRecordsAreNotReplayedAfterReopen() throws IOException {
+    try (ExportSpool spool = new ExportSpool(directory, 1024)) {
+      spool.open();
+      long first = spool.append(batches(1), true);
+      spool.append(batches(2), true);
+      long third = spool.append(batches(3), true);
+      spool.acknowledge(List.of(first, third));
+      assertEquals(1, spool.getPendingCount());
+    }
+    try (ExportSpool spool = new ExportSpool(directory, 1024)) {
+      spool.open();
+      assertEquals(1, spool.getPendingCount());
+      List<PendingExport> replayed = spool.readReplayable(10);
+      assertEquals(1, replayed.size());
+      assertEquals(2.0, value(replayed.get(0)));
+    }
+  }
+
+  @Test
+  void completedSegmentsAndAckFilesAreDeleted() throws IOException {
+    try (ExportSpool spool = new ExportSpool(directory, 1)) {
+      spool.open();
+      long first = spool.append(batches(1), true);
+      long second = spool.append(batches(2), true);
+      assertEquals(2, files(".spool").size());
+      spool.acknowledge(first);
+      assertEquals(1, files(".spool").size());
+      spool.acknowledge(second);
+    }
+    assertTrue(files(".spool").isEmpty());
+    assertTrue(files(".ack").isEmpty());
+  }
+
+  @Test
+  void tornTailIsTruncated() throws IOException {
+    try (ExportSpool spool = new ExportSpool(directory, 1024)) {
+      spool.open();
+      spool.append(batches(1), false);
+      spool.append(batches(2), false);
+    }
+    Path segment = files(".spool").get(0);
+    long size = Files.size(segment);
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+      channel.truncate(size - 2);
+    }
+    Path ackFile = Path.of(segment.toString().replace(".spool", ".ack"));
+    Files.write(ackFile, new byte[] {0, 0});
+
+    try (ExportSpool spool = new ExportSpool(directory, 1024)) {
+      spool.open();
+      List<PendingExport> replayed = spool.readReplayable(10);
+      assertEquals(1, replayed.size());
+      assertEquals(1.0, value(replayed.get(0)));
+    }
+    assertTrue(Files.size(segment) < size - 2);
+    assertEquals(0, Files.size(ackFile));
+  }
+
+  @Test
+  void corruptRecordIsSkipped() throws IOException {
+    long second;
+    try (ExportSpool spool = new ExportSpool(directory, 1024)) {
+      spool.open();
+      spool.append(batches(1), true);
+      second = spool.append(batches(2), true);
+      spool.append(batches(3), true);
+    }
+    Path segment = files(".spool").get(0);
+    byte[] data = Files.readAllBytes(segment);
+    // flip a payload byte of the second record, the checksum no longer matches
+    int secondOffset = data.length / 3;
+    data[secondOffset + 10] ^= 0x55;
+    Files.write(segment, data);
+
+    try (ExportSpool spool = new ExportSpool(directory, 1024)) {
+      spool.open();
+      List<PendingExport> replayed = spool.readReplayable(10);
+      assertEquals(2, replayed.size());
+      assertEquals(1.0, value(replayed.get(0)));
+      assertEquals(3.0, value(replayed.get(1)));
+      assertFalse(replayed.stream().anyMatch(export -> export.getSpoolId() == second));
+    }
+    try (ExportSpool spool = new ExportSpool(directory, 1024)) {
+      spool.open();
+      assertEquals(2, spool.readReplayable(10).size());
+    }
+  }
+
+  @Test
+  void deadLetterFileCanBeReplayedAsSegment() throws IOException {
+    Path deadLetter;
+    try (ExportSpool spool = new ExportSpool(directory, 1024)) {
+      spool.open();
+      deadLetter = spool.deadLetter(batches(4));
+      spool.deadLetter(batches(5));
+      assertFalse(spool.hasReplayable());
+    }
+    try (ExportSpool spool = new ExportSpool(directory, 1024)) {
+      spool.open();
+      assertFalse(spool.hasReplayable());
+    }
+    Files.move(deadLetter, directory.resolve(String.format("%020d.spool", 9)));
+    try (ExportSpool spool = new ExportSpool(directory, 1024)) {
+      spool.open();
+      List<PendingExport> replayed = spool.readReplayable(10);
+      assertEquals(2, replayed.size());
+      assertEquals(4.0, value(replayed.get(0)));
+      assertEquals(5.0, value(replayed.get(1)));
+    }
+  }
+
+  @Test
+  void orphanAckFilesAreDeleted() throws IOException {
+    Path orphan = directory.resolve(String.format("%020d.ack", 7));
+    Files.write(orphan, new byte[] {0, 0, 0, 0});
+    try (ExportSpool spool = new ExportSpool(directory, 1024)) {
+      spool.open();
+    }
+    assertFalse(Files.exists(orphan));
+  }
+}
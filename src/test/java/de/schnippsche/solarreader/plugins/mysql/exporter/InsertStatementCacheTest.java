@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class InsertStatementCacheTest {
+  @Test
+  void keepsOneStatementPerColumnSet() {
+    InsertStatementCache cache = new InsertStatementCache();
+    TableSchema power = TableSchema.intern("data", Arrays.asList("time", "power"));
+    TableSchema voltage = TableSchema.intern("data", Arrays.asList("time", "voltage"));
+
+    InsertStatement first = cache.get(power);
+    InsertStatement second = cache.get(voltage);
+
+    assertNotSame(first, second);
+    assertSame(first, cache.get(power));
+    assertSame(second, cache.get(voltage));
+    assertSame(first, cache.get(new TableSchema("data", Arrays.asList("time", "power"))));
+    assertEquals("INSERT INTO data (time, voltage) VALUES (?, ?)", second.getSql());
+  }
+
+  @Test
+  void clearRebuildsStatements() {
+    InsertStatementCache cache = new InsertStatementCache();
+    TableSchema schema = TableSchema.intern("data", Arrays.asList("time", "power"));
+    InsertStatement statement = cache.get(schema);
+
+    cache.clear();
+
+    assertNotSame(statement, cache.get(schema));
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class InsertStatementTest {
+  private static final TableSchema SCHEMA =
+      new TableSchema("data", Arrays.asList("time", "name", "power"));
+  private static final List<String> KEY = Arrays.asList("TIME", "name");
+
+  @Test
+  void plainInsert() {
+    InsertStatement statement = InsertStatement.of(SCHEMA);
+
+    assertEquals("INSERT INTO data (time, name, power) VALUES (?, ?, ?)", statement.getSql());
+    assertEquals(
+        "INSERT INTO data (time, name, power) VALUES (?, ?, ?), (?, ?, ?)", statement.getSql(2));
+    assertEquals(
+        "LOAD DATA LOCAL INFILE 'solarreader.tsv' INTO TABLE data CHARACTER SET utf8mb4"
+            + " (time, name, power)",
+        statement.getLoadDataSql());
+    assertEquals(3, statement.getParameterCount());
+    assertFalse(statement.isIgnoringDuplicates());
+  }
+
+  @Test
+  void ignoreMode() {
+    InsertStatement statement = InsertStatement.of(SCHEMA, UpsertMode.IGNORE, KEY);
+
+    assertEquals(
+        "INSERT IGNORE INTO data (time, name, power) VALUES (?, ?, ?)", statement.getSql());
+    assertEquals("", statement.getSuffix());
+    assertEquals(
+        "LOAD DATA LOCAL INFILE 'solarreader.tsv' IGNORE INTO TABLE data CHARACTER SET utf8mb4"
+            + " (time, name, power)",
+        statement.getLoadDataSql());
+  }
+
+  @Test
+  void updateModeUpdatesNonKeyColumns() {
+    InsertStatement statement = InsertStatement.of(SCHEMA, UpsertMode.UPDATE, KEY);
+
+    assertEquals(
+        "INSERT INTO data (time, name, power) VALUES (?, ?, ?), (?, ?, ?)"
+            + " ON DUPLICATE KEY UPDATE power = VALUES(power)",
+        statement.getSql(2));
+    assertNull(statement.getLoadDataSql());
+    assertFalse(statement.isIgnoringDuplicates());
+  }
+
+  @Test
+  void updateModeWithOnlyKeyColumnsFallsBackToIgnore() {
+    InsertStatement statement =
+        InsertStatement.of(SCHEMA, UpsertMode.UPDATE, Arrays.asList("time", "name", "power"));
+
+    assertEquals(
+        "INSERT IGNORE INTO data (time, name, power) VALUES (?, ?, ?)", statement.getSql());
+    assertEquals("", statement.getSuffix());
+    assertTrue(statement.isIgnoringDuplicates());
+  }
+
+  @Test
+  void multiRowSqlIsCachedForSameRowCount() {
+    InsertStatement statement = InsertStatement.of(SCHEMA);
+
+    String sql = statement.getSql(5);
+
+    assertSame(sql, statement.getSql(5));
+    assertSame(statement.getSql(), statement.getSql(1));
+  }
+
+  @Test
+  void upsertModeParsing() {
+    assertEquals(UpsertMode.UPDATE, UpsertMode.fromString(" update "));
+    assertEquals(UpsertMode.IGNORE, UpsertMode.fromString("Ignore"));
+    assertEquals(UpsertMode.OFF, UpsertMode.fromString("unknown"));
+    assertEquals(UpsertMode.OFF, UpsertMode.fromString(null));
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class MySQLExporterTest {
+  private static IOException failure(SQLException cause) {
+    return new IOException(cause.getMessage(), cause);
+  }
+
+  private static PendingExport export(double value) {
+    TableBatch batch = new TableBatch(new TableSchema("data", Arrays.asList("power")));
+    batch.addRow(new Object[] {value});
+    return new PendingExport(List.of(batch), PendingExport.NOT_SPOOLED);
+  }
+
+  @Test
+  void corruptOffHeapRecordFailsOnlyItsExport() throws InterruptedException {
+    OffHeapRing ring = new OffHeapRing(4096);
+    PendingExport corrupt = export(1);
+    PendingExport corruptHandle = corrupt.moveTo(ring);
+    ring.read();
+    ring.write(new byte[] {1, 2, 3});
+    PendingExport valid = export(2);
+    ExportQueue<PendingExport> queue =
+        new ExportQueue<>(
+            10,
+            1_000_000,
+            OverflowPolicy.SPILL,
+            PendingExport::getEstimatedSize,
+            export -> {},
+            export -> export,
+            MySQLExporter::restoreQueued);
+    queue.offer(corruptHandle, 0, TimeUnit.SECONDS);
+    queue.offer(valid.moveTo(ring), 0, TimeUnit.SECONDS);
+
+    List<PendingExport> taken = new ArrayList<>();
+    assertEquals(2, queue.drainTo(taken, 10));
+
+    assertFalse(taken.get(0).isRestored());
+    assertTrue(corrupt.getCompletion().isCompletedExceptionally());
+    assertTrue(taken.get(1).isRestored());
+    assertSame(valid.getCompletion(), taken.get(1).getCompletion());
+    assertEquals(2.0, taken.get(1).getBatches().get(0).getDouble(0, 0));
+  }
+
+  @Test
+  void connectionErrorsAreRetryable() {
+    assertTrue(
+        MySQLExporter.isRetryable(
+            failure(new SQLNonTransientConnectionException("refused", "08000", 0))));
+    assertTrue(MySQLExporter.isRetryable(failure(new SQLException("no state"))));
+  }
+
+  @Test
+  void transientErrorsAreRetryable() {
+    assertTrue(
+        MySQLExporter.isRetryable(
+            failure(new SQLTransactionRollbackException("deadlock", "40001", 1213))));
+    assertTrue(MySQLExporter.isRetryable(failure(new SQLException("serialization", "40001"))));
+    assertTrue(
+        MySQLExporter.isRetryable(failure(new SQLException("lock wait timeout", "HY000", 1205))));
+    assertTrue(MySQLExporter.isRetryable(failure(new SQLTimeoutException("timeout", "HY000"))));
+  }
+
+  @Test
+  void dataAndSchemaErrorsAreNotRetryable() {
+    assertFalse(
+        MySQLExporter.isRetryable(
+            failure(new SQLIntegrityConstraintViolationException("duplicate", "23000", 1062))));
+    assertFalse(
+        MySQLExporter.isRetryable(failure(new SQLSyntaxErrorException("unknown", "42S22", 1054))));
+    assertFalse(
+        MySQLExporter.isRetryable(new IOException("binding failed", new ClassCastException())));
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import org.junit.jupiter.api.Test;
+
+class OffHeapRingTest {
+
+  private static byte[] record(int length, int seed) {
+    byte[] record = new byte[length];
+    for (int i = 0; i < length; i++) {
+      record[i] = (byte) (seed + i);
+    }
+    return record;
+  }
+
+  @Test
+  void recordsAreReadInWriteOrder() {
+    OffHeapRing ring = new OffHeapRing(64);
+    assertTrue(ring.write(record(5, 1)));
+    assertTrue(ring.write(record(0, 2)));
+    assertTrue(ring.write(record(7, 3)));
+
+    assertEquals(3, ring.size());
+    assertEquals(3 * 4 + 12, ring.getUsedBytes());
+    assertArrayEquals(record(5, 1), ring.read());
+    assertArrayEquals(record(0, 2), ring.read());
+    assertArrayEquals(record(7, 3), ring.read());
+    assertEquals(0, ring.size());
+    assertEquals(0, ring.getUsedBytes());
+  }
+
+  @Test
+  void recordsWrapAroundTheEndOfTheBuffer() {
+    OffHeapRing ring = new OffHeapRing(30);
+    Deque<byte[]> expected = new ArrayDeque<>();
+    // lengths chosen so that headers and payloads both get split at the buffer end
+    int[] lengths = {9, 5, 11, 3, 13, 1, 8, 10, 6, 12};
+    for (int i = 0; i < lengths.length; i++) {
+      byte[] record = record(lengths[i], i * 17);
+      while (!ring.write(record)) {
+        assertArrayEquals(expected.removeFirst(), ring.read());
+      }
+      expected.addLast(record);
+    }
+    while (!expected.isEmpty()) {
+      assertArrayEquals(expected.removeFirst(), ring.read());
+    }
+    assertEquals(0, ring.getUsedBytes());
+  }
+
+  @Test
+  void fullCapacityIsUsable() {
+    OffHeapRing ring = new OffHeapRing(20);
+    assertTrue(ring.write(record(6, 1)));
+    assertTrue(ring.write(record(6, 2)));
+    assertFalse(ring.write(record(0, 3)));
+    assertEquals(20, ring.getUsedBytes());
+
+    ring.read();
+    assertTrue(ring.write(record(6, 4)));
+    assertArrayEquals(record(6, 2), ring.read());
+    assertArrayEquals(record(6, 4), ring.read());
+  }
+
+  @Test
+  void oversizedRecordIsRejectedAndEmptyReadFails() {
+    OffHeapRing ring = new OffHeapRing(16);
+    assertFalse(ring.write(record(13, 0)));
+    assertThrows(IllegalStateException.class, ring::read);
+  }
+}
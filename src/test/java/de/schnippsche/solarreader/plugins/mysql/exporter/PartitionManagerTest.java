@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class PartitionManagerTest {
+  private static final LocalDate TODAY = LocalDate.of(2025, 3, 10);
+  private static final String EXPRESSION = "to_days(`time`)";
+  private final Connection connection = mock(Connection.class);
+  private final Statement statement = mock(Statement.class);
+  private final List<String[]> rows = new ArrayList<>();
+
+  PartitionManagerTest() throws SQLException {
+    when(connection.createStatement()).thenReturn(statement);
+    int[] cursor = {-1};
+    ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.next()).thenAnswer(invocation -> ++cursor[0] < rows.size());
+    when(resultSet.getString(anyInt()))
+        .thenAnswer(invocation -> rows.get(cursor[0])[(int) invocation.getArgument(0) - 1]);
+    when(statement.executeQuery(anyString())).thenReturn(resultSet);
+  }
+
+  private static String toDays(LocalDate day) {
+    return String.valueOf(day.toEpochDay() + 719528);
+  }
+
+  private void dayPartition(String table, LocalDate day, String expression) {
+    rows.add(
+        new String[] {
+          table, String.format("p%tY%<tm%<td", day), toDays(day.plusDays(1)), expression
+        });
+  }
+
+  private void maxPartition(String table, String expression) {
+    rows.add(new String[] {table, "pmax", "MAXVALUE", expression});
+  }
+
+  @Test
+  void partitionClauseCoversTodayAndAhead() {
+    PartitionManager manager = new PartitionManager(PartitionInterval.MONTH, 0);
+
+    assertEquals(
+        " PARTITION BY RANGE (TO_DAYS(time)) ("
+            + "PARTITION p20250301 VALUES LESS THAN (TO_DAYS('2025-04-01')), "
+            + "PARTITION p20250401 VALUES LESS THAN (TO_DAYS('2025-05-01')), "
+            + "PARTITION p20250501 VALUES LESS THAN (TO_DAYS('2025-06-01')), "
+            + "PARTITION pmax VALUES LESS THAN MAXVALUE)",
+        manager.getPartitionClause("time", TODAY));
+  }
+
+  @Test
+  void futurePartitionsAreAddedAndExpiredDropped() throws SQLException {
+    PartitionManager manager = new PartitionManager(PartitionInterval.DAY, 3);
+    for (int i = -5; i <= 5; i++) {
+      dayPartition("data", TODAY.plusDays(i), EXPRESSION);
+    }
+    maxPartition("data", EXPRESSION);
+
+    manager.maintain(connection, TODAY, Set.of("data"));
+
+    verify(statement)
+        .executeUpdate(
+            "ALTER TABLE data REORGANIZE PARTITION pmax INTO ("
+                + "PARTITION p20250316 VALUES LESS THAN (TO_DAYS('2025-03-17')), "
+                + "PARTITION p20250317 VALUES LESS THAN (TO_DAYS('2025-03-18')), "
+                + "PARTITION pmax VALUES LESS THAN MAXVALUE)");
+    verify(statement).executeUpdate("ALTER TABLE data DROP PARTITION p20250305, p20250306");
+  }
+
+  @Test
+  void tablesNotWrittenByTheExporterAreNotChanged() throws SQLException {
+    PartitionManager manager = new PartitionManager(PartitionInterval.DAY, 1);
+    dayPartition("foreign", TODAY.minusDays(10), EXPRESSION);
+    maxPartition("foreign", EXPRESSION);
+
+    manager.maintain(connection, TODAY, Set.of("data"));
+
+    verify(statement, never()).executeUpdate(anyString());
+  }
+
+  @Test
+  void otherPartitionExpressionsAreNotChanged() throws SQLException {
+    PartitionManager manager = new PartitionManager(PartitionInterval.DAY, 1);
+    dayPartition("data", TODAY.minusDays(10), "year(`time`)");
+    maxPartition("data", "year(`time`)");
+
+    manager.maintain(connection, TODAY, Set.of("data"));
+
+    verify(statement, never()).executeUpdate(anyString());
+  }
+
+  @Test
+  void implausiblePartitionsAreNotChanged() throws SQLException {
+    PartitionManager manager = new PartitionManager(PartitionInterval.DAY, 1);
+    rows.add(new String[] {"data", "p20250101", toDays(LocalDate.of(2025, 1, 5)), EXPRESSION});
+    maxPartition("data", EXPRESSION);
+    rows.add(new String[] {"other", "old", toDays(LocalDate.of(2025, 1, 2)), EXPRESSION});
+    maxPartition("other", EXPRESSION);
+
+    manager.maintain(connection, TODAY, Set.of("data", "other"));
+
+    verify(statement, never()).executeUpdate(anyString());
+  }
+
+  @Test
+  void monthPartitionsAreAccepted() throws SQLException {
+    PartitionManager manager = new PartitionManager(PartitionInterval.MONTH, 31);
+    rows.add(new String[] {"data", "p20250101", toDays(LocalDate.of(2025, 2, 1)), EXPRESSION});
+    rows.add(new String[] {"data", "p20250201", toDays(LocalDate.of(2025, 3, 1)), EXPRESSION});
+    rows.add(new String[] {"data", "p20250301", toDays(LocalDate.of(2025, 4, 1)), EXPRESSION});
+    maxPartition("data", EXPRESSION);
+
+    manager.maintain(connection, TODAY, Set.of("data"));
+
+    verify(statement)
+        .executeUpdate(
+            "ALTER TABLE data REORGANIZE PARTITION pmax INTO ("
+                + "PARTITION p20250401 VALUES LESS THAN (TO_DAYS('2025-05-01')), "
+                + "PARTITION p20250501 VALUES LESS THAN (TO_DAYS('2025-06-01')), "
+                + "PARTITION pmax VALUES LESS THAN MAXVALUE)");
+    verify(statement).executeUpdate("ALTER TABLE data DROP PARTITION p20250101");
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReplayPacerTest {
+  private static final TableSchema SCHEMA = new TableSchema("data", Arrays.asList("power"));
+
+  @TempDir Path directory;
+
+  private static List<TableBatch> batches(double value) {
+    TableBatch batch = new TableBatch(SCHEMA);
+    batch.addRow(new Object[] {value});
+    return List.of(batch);
+  }
+
+  @Test
+  void replaysEveryRoundBelowLowWaterMark() {
+    ReplayPacer pacer = new ReplayPacer(4);
+    for (int round = 0; round < 10; round++) {
+      assertTrue(pacer.isDue(3, 10));
+    }
+  }
+
+  @Test
+  void replaysEveryIntervalWhileQueueIsBusy() {
+    ReplayPacer pacer = new ReplayPacer(4);
+    assertFalse(pacer.isDue(100, 10));
+    assertFalse(pacer.isDue(100, 10));
+    assertFalse(pacer.isDue(100, 10));
+    assertTrue(pacer.isDue(100, 10));
+    assertFalse(pacer.isDue(100, 10));
+  }
+
+  @Test
+  void busyQueueStillDrainsSpool() throws IOException, InterruptedException {
+    int batchSize = 5;
+    ExportQueue<String> queue =
+        new ExportQueue<>(
+            1000,
+            1_000_000,
+            OverflowPolicy.SPILL,
+            String::length,
+            entry -> {},
+            UnaryOperator.identity(),
+            UnaryOperator.identity());
+    ReplayPacer pacer = new ReplayPacer(4);
+    try (ExportSpool spool = new ExportSpool(directory, 1024)) {
+      spool.open();
+      for (int i = 0; i < 20; i++) {
+        spool.append(batches(i), false);
+      }
+      int live = 0;
+      int rounds = 0;
+      while (spool.hasReplayable() && rounds < 100) {
+        // the producer keeps the queue well above one batch in every round
+        while (queue.size() < 3 * batchSize) {
+          queue.offer("export " + live++, 0, TimeUnit.SECONDS);
+        }
+        queue.drainTo(new ArrayList<>(), batchSize);
+        if (pacer.isDue(queue.size(), batchSize)) {
+          List<PendingExport> replayed = spool.readReplayable(batchSize);
+          spool.acknowledge(
+              replayed.stream().map(PendingExport::getSpoolId).collect(Collectors.toList()));
+        }
+        rounds++;
+      }
+      assertFalse(spool.hasReplayable());
+      assertEquals(0, spool.getPendingCount());
+      assertEquals(16, rounds);
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class SchemaCatalogTest {
+  private final Connection connection = mock(Connection.class);
+  private final Statement statement = mock(Statement.class);
+  private final SchemaCatalog catalog = new SchemaCatalog(null, Collections.emptyList());
+
+  SchemaCatalogTest() throws SQLException {
+    ResultSet resultSet = mock(ResultSet.class);
+    when(connection.createStatement()).thenReturn(statement);
+    when(statement.executeQuery(anyString())).thenReturn(resultSet);
+  }
+
+  @Test
+  void untypedColumnsAreNotCreated() throws SQLException {
+    TableSchema schema = new TableSchema("data", Arrays.asList("power", "state", "count"));
+
+    List<String> untyped =
+        catalog.ensure(
+            connection,
+            schema,
+            new ParameterType[] {ParameterType.DOUBLE, null, ParameterType.LONG});
+
+    assertEquals(List.of("state"), untyped);
+    assertFalse(catalog.isVerified(schema));
+    verify(statement).executeUpdate("CREATE TABLE IF NOT EXISTS data (power DOUBLE, count DOUBLE)");
+  }
+
+  @Test
+  void columnIsAddedOnceItHasAValue() throws SQLException {
+    TableSchema schema = new TableSchema("data", Arrays.asList("power", "state"));
+    catalog.ensure(connection, schema, new ParameterType[] {ParameterType.DOUBLE, null});
+
+    List<String> untyped =
+        catalog.ensure(
+            connection, schema, new ParameterType[] {ParameterType.DOUBLE, ParameterType.STRING});
+
+    assertTrue(untyped.isEmpty());
+    assertTrue(catalog.isVerified(schema));
+    verify(statement).executeUpdate("ALTER TABLE data ADD COLUMN state VARCHAR(255)");
+  }
+
+  @Test
+  void mixedIntegralAndFloatingValuesGetDoubleColumn() throws SQLException {
+    TableSchema schema = new TableSchema("data", Arrays.asList("power", "energy"));
+    TableBatch batch = new TableBatch(schema);
+    batch.addRow(new Object[] {1L, 10});
+    batch.addRow(new Object[] {2.5, null});
+    TableBatch later = new TableBatch(schema);
+    later.addRow(new Object[] {3, 10.5});
+    batch.addAll(later);
+
+    List<String> untyped = catalog.ensure(connection, schema, batch.getParameterTypes());
+
+    assertTrue(untyped.isEmpty());
+    verify(statement)
+        .executeUpdate("CREATE TABLE IF NOT EXISTS data (power DOUBLE, energy DOUBLE)");
+  }
+
+  @Test
+  void columnOfMixedTypesIsNotCreated() throws SQLException {
+    TableSchema schema = new TableSchema("data", Arrays.asList("power", "state"));
+    TableBatch batch = new TableBatch(schema);
+    batch.addRow(new Object[] {1.5, 1L});
+    batch.addRow(new Object[] {2.5, "on"});
+
+    List<String> untyped = catalog.ensure(connection, schema, batch.getParameterTypes());
+
+    assertEquals(List.of("state"), untyped);
+    assertFalse(catalog.isVerified(schema));
+    verify(statement).executeUpdate("CREATE TABLE IF NOT EXISTS data (power DOUBLE)");
+  }
+
+  @Test
+  void tableWithoutValuesIsNotCreated() throws SQLException {
+    TableSchema schema = new TableSchema("data", Arrays.asList("power"));
+
+    List<String> untyped = catalog.ensure(connection, schema, new ParameterType[] {null});
+
+    assertEquals(List.of("power"), untyped);
+    verify(statement, never()).executeUpdate(anyString());
+  }
+}
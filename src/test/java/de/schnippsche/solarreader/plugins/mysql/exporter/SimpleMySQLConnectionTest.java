@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import de.schnippsche.solarreader.backend.util.Setting;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import org.junit.jupiter.api.Test;
+
+class SimpleMySQLConnectionTest {
+  private static final String BASE =
+      "jdbc:mariadb://db:3307/solar?useBulkStmts=true&useServerPrepStmts=true";
+
+  private static Setting setting() {
+    Setting setting = new Setting();
+    setting.setProviderHost("db");
+    setting.setProviderPort(3307);
+    setting.setConfigurationValue("dbname", "solar");
+    return setting;
+  }
+
+  private static String url(Setting setting) {
+    try (SimpleMySQLConnection connection = new SimpleMySQLConnection(setting)) {
+      return connection.getUrl();
+    }
+  }
+
+  @Test
+  void duplicateKeyFailsLoadDataUnlessIgnored() {
+    SQLWarning duplicate = new SQLWarning("Duplicate entry '1' for key 'PRIMARY'", "23000", 1062);
+
+    SQLException e =
+        assertThrows(
+            SQLException.class,
+            () -> SimpleMySQLConnection.checkLoadDataWarnings(duplicate, false));
+    assertEquals(1062, e.getErrorCode());
+    assertEquals("23000", e.getSQLState());
+    assertDoesNotThrow(() -> SimpleMySQLConnection.checkLoadDataWarnings(duplicate, true));
+  }
+
+  @Test
+  void otherLoadDataWarningsAlwaysFail() {
+    SQLWarning truncated = new SQLWarning("Data truncated for column 'power'", "01000", 1265);
+
+    assertThrows(
+        SQLException.class, () -> SimpleMySQLConnection.checkLoadDataWarnings(truncated, true));
+    assertDoesNotThrow(() -> SimpleMySQLConnection.checkLoadDataWarnings(null, false));
+  }
+
+  @Test
+  void defaultUrl() {
+    Setting setting = setting();
+    setting.setConfigurationValue(SimpleMySQLConnection.LOAD_DATA_THRESHOLD, "0");
+
+    assertEquals(BASE + "&allowLocalInfile=false&connectTimeout=5000", url(setting));
+  }
+
+  @Test
+  void allOptions() {
+    Setting setting = setting();
+    setting.setConfigurationValue(SimpleMySQLConnection.LOAD_DATA_THRESHOLD, "100");
+    setting.setConfigurationValue(SimpleMySQLConnection.CONNECT_TIMEOUT, "10");
+    setting.setConfigurationValue(SimpleMySQLConnection.SOCKET_TIMEOUT, "30");
+    setting.setConfigurationValue(SimpleMySQLConnection.COMPRESSION, "true");
+    setting.setConfigurationValue(SimpleMySQLConnection.SSL_MODE, " verify-full ");
+    setting.setConfigurationValue(
+        SimpleMySQLConnection.URL_PROPERTIES, "tcpKeepAlive=true; invalid ;&cachePrepStmts=false");
+
+    assertEquals(
+        BASE
+            + "&allowLocalInfile=true&connectTimeout=10000&socketTimeout=30000"
+            + "&useCompression=true&sslMode=verify-full&tcpKeepAlive=true&cachePrepStmts=false",
+        url(setting));
+  }
+
+  @Test
+  void connectTimeoutIsAtLeastOneSecond() {
+    Setting setting = setting();
+    setting.setConfigurationValue(SimpleMySQLConnection.LOAD_DATA_THRESHOLD, "0");
+    setting.setConfigurationValue(SimpleMySQLConnection.CONNECT_TIMEOUT, "0");
+    setting.setConfigurationValue(SimpleMySQLConnection.SOCKET_TIMEOUT, "-1");
+
+    assertEquals(BASE + "&allowLocalInfile=false&connectTimeout=1000", url(setting));
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2024-2025 Stefan Toengi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.schnippsche.solarreader.plugins.mysql.exporter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TableBatchCodecTest {
+
+  @Test
+  void roundTripKeepsValuesAndTypes() throws IOException {
+    TableSchema schema =
+        new TableSchema("data", Arrays.asList("power", "count", "name", "flag", "amount", "ts"));
+    TableBatch batch = new TableBatch(schema);
+    Instant instant = Instant.parse("2025-03-01T10:15:30.123Z");
+    LocalDateTime local = LocalDateTime.of(2025, 3, 1, 11, 15, 30, 456_000_000);
+    batch.addRow(
+        new Object[] {
+          1.5, 42L, "tab\there", true, new BigDecimal("12.3400"), Timestamp.from(instant)
+        });
+    batch.addRow(new Object[] {null, null, null, null, null, local});
+    TableBatch other = new TableBatch(new TableSchema("other", Arrays.asList("value")));
+    other.addRow(new Object[] {7});
+
+    List<TableBatch> decoded =
+        TableBatchCodec.decode(TableBatchCodec.encode(Arrays.asList(batch, other)));
+
+    assertEquals(2, decoded.size());
+    TableBatch first = decoded.get(0);
+    assertEquals(schema, first.getSchema());
+    assertEquals(2, first.getRowCount());
+    assertEquals(1.5, first.getValue(0, 0));
+    assertEquals(42L, first.getValue(0, 1));
+    assertEquals("tab\there", first.getValue(0, 2));
+    assertEquals(Boolean.TRUE, first.getValue(0, 3));
+    assertEquals(new BigDecimal("12.3400"), first.getValue(0, 4));
+    assertEquals(Timestamp.from(instant), first.getValue(0, 5));
+    for (int column = 0; column < 5; column++) {
+      assertNull(first.getValue(1, column));
+    }
+    assertEquals(local, first.getValue(1, 5));
+    assertEquals("other", decoded.get(1).getSchema().getTableName());
+    assertEquals(7L, decoded.get(1).getValue(0, 0));
+  }
+
+  @Test
+  void truncatedDataIsRejected() throws IOException {
+    TableBatch batch = new TableBatch(new TableSchema("data", Arrays.asList("power")));
+    batch.addRow(new Object[] {1.0});
+    byte[] data = TableBatchCodec.encode(Arrays.asList(batch));
+
+    assertThrows(
+        IOException.class, () -> TableBatchCodec.decode(Arrays.copyOf(data, data.length - 3)));
+  }
+}
@@ -23,12 +23,17 @@ package de.schnippsche.solarreader.test;
 
 import de.schnippsche.solarreader.backend.table.Table;
 import de.schnippsche.solarreader.plugins.mysql.exporter.MySQLConnection;
+import de.schnippsche.solarreader.plugins.mysql.exporter.TableBatch;
+import java.util.List;
 
 public class MySQLTestConnection implements MySQLConnection {
 
   @Override
   public void writeTable(Table table) {}
 
+  @Override
+  public void writeBatches(List<TableBatch> batches) {}
+
   @Override
   public String getDatabaseVersion() {
     return "5.0.x";